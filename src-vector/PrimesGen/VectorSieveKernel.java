@@ -0,0 +1,88 @@
+package PrimesGen;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorSieveKernel is the {@link SieveKernel} built on the incubating Vector API, it handles SPECIES.length() bytes
+ * at a time, 32 with AVX2 and 64 with AVX-512.
+ * <p>
+ * The block is combined with each pattern of GROUP_PATTERNS by a vector AND, reading a whole vector from the pattern at
+ * the current offset, which is why the patterns are MAX_LANES bytes longer than their period. The scan compares a
+ * vector of bytes with 0 and turns the result into a bit mask with VectorMask.toLong(), so the survivors are found
+ * with Long.numberOfTrailingZeros, one per set bit, and the bytes that are all 0 are skipped a whole vector at a time.
+ * <p>
+ * Compiling and loading this class needs the module jdk.incubator.vector, which is why it lives in the optional source
+ * root src-vector and is only ever loaded by name, see {@link SieveKernel}.
+ */
+final class VectorSieveKernel extends SieveKernel {
+    /**
+     * The preferred species of this platform.
+     */
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * Constructor for the VectorSieveKernel class.
+     *
+     * @throws IllegalStateException If the preferred vectors are wider than MAX_LANES bytes.
+     */
+    VectorSieveKernel() {
+        if (SPECIES.length() > MAX_LANES) {
+            throw new IllegalStateException("Vectors are wider than " + MAX_LANES + " bytes.");
+        }
+    }
+
+    @Override
+    void crossPatternPrimes(byte[] block, long low, int length) {
+        for (int k = 0; k < GROUP_PATTERNS.length; ++k) {
+            and(block, length, GROUP_PATTERNS[k], (int) (low % GROUP_PERIODS[k]), GROUP_PERIODS[k]);
+        }
+    }
+
+    /**
+     * Combines a block with a periodic pattern: block[i] &amp;= pattern[(offset + i) % period] for i below length.
+     *
+     * @param block   The block.
+     * @param length  The number of bytes of the block to combine.
+     * @param pattern The pattern, at least period + MAX_LANES bytes long.
+     * @param offset  The index in the pattern of byte 0 of the block, below period.
+     * @param period  The period of the pattern.
+     */
+    private static void and(byte[] block, int length, byte[] pattern, int offset, int period) {
+        int lanes = SPECIES.length();
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += lanes) {
+            ByteVector.fromArray(SPECIES, block, i).and(ByteVector.fromArray(SPECIES, pattern, offset)).intoArray(block, i);
+            offset += lanes;
+            if (offset >= period) {
+                offset -= period;
+            }
+        }
+        for (; i < length; ++i) {
+            block[i] &= pattern[offset];
+            if (++offset == period) {
+                offset = 0;
+            }
+        }
+    }
+
+    @Override
+    int collect(byte[] block, int length, int base, int[] out) {
+        int lanes = SPECIES.length();
+        int count = 0;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += lanes) {
+            long mask = ByteVector.fromArray(SPECIES, block, i).compare(VectorOperators.NE, (byte) 0).toLong();
+            for (; mask != 0; mask &= mask - 1) {
+                out[count++] = base + i + Long.numberOfTrailingZeros(mask);
+            }
+        }
+        for (; i < length; ++i) {
+            if (block[i] != 0) {
+                out[count++] = base + i;
+            }
+        }
+        return count;
+    }
+}
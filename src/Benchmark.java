@@ -0,0 +1,198 @@
+import PrimesGen.IntList;
+import PrimesGen.PrimesGenVec;
+import PrimesGen.PrimesGenVecSeg;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Benchmark measures every sieve kernel behind the method switch, full-range (PrimesGenVec) and segmented (PrimesGenVecSeg).
+ * <p>
+ * It follows the JMH throughput mode: each benchmark runs warm-up iterations, then measured iterations of a fixed
+ * duration, and reports the mean number of operations per second with its 99.9% confidence error (normal approximation).
+ * Like the JMH GC profiler it also reports the allocation rate (MB/s), the bytes allocated per operation and the
+ * number and time of garbage collections during the measured iterations.
+ * One operation generates all primes up to uL; the segmented benchmark sieves [sqrt(uL) + 1, uL] with the
+ * pre-sieved primes computed once before the warm-up.
+ * <p>
+ * Usage: java Benchmark [-m methods] [-n sizes] [-wi warm-up iterations] [-i iterations] [-t iteration milliseconds]
+ * <pre>
+ * java Benchmark -m 1,5,6 -n 1000000,10000000 -wi 3 -i 5 -t 1000
+ * </pre>
+ * The results only mean something when compared with each other on the same machine, run it with nothing else busy.
+ */
+public class Benchmark {
+    /**
+     * The names of the methods, by method number.
+     */
+    private static final String[] METHODS = {"trialDivision", "eratosthenes", "euler", "sundaram", "incremental", "bitSieve", "wheelSieve"};
+
+    /**
+     * Consumes the results so that the JIT cannot remove the work.
+     */
+    private static long sink;
+
+    public static void main(String[] args) {
+        String methods = "0,1,2,3,4,5,6";
+        String sizes = "100000,1000000,10000000";
+        int warmups = 3;
+        int iterations = 5;
+        long millis = 1000;
+        try {
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                switch (args[i]) {
+                    case "-m" -> methods = args[i + 1];
+                    case "-n" -> sizes = args[i + 1];
+                    case "-wi" -> warmups = Integer.parseInt(args[i + 1]);
+                    case "-i" -> iterations = Integer.parseInt(args[i + 1]);
+                    case "-t" -> millis = Long.parseLong(args[i + 1]);
+                    default -> throw new IllegalArgumentException("Invalid arguments");
+                }
+            }
+            if (warmups < 0 || iterations < 2 || millis < 1) {
+                throw new IllegalArgumentException("Invalid arguments");
+            }
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+
+        System.out.printf("%-28s %12s %14s %12s %12s %14s %8s %9s%n",
+                "Benchmark", "uL", "Score", "Error", "Units", "alloc.norm", "gc.count", "gc.time");
+        for (String m : methods.split(",")) {
+            byte method = Byte.parseByte(m.trim());
+            for (String s : sizes.split(",")) {
+                int uL = Integer.parseInt(s.trim());
+                run(METHODS[method] + ".full", uL, warmups, iterations, millis, () -> {
+                    PrimesGenVec primes = new PrimesGenVec(uL, method);
+                    primes.run();
+                    return primes.getPrimes().size();
+                });
+
+                int sqrtN = (int) Math.sqrt(uL);
+                PrimesGenVec preSieve = new PrimesGenVec(sqrtN, method);
+                preSieve.run();
+                IntList preSievedPrimes = preSieve.getPrimes();
+                run(METHODS[method] + ".segmented", uL, warmups, iterations, millis, () -> {
+                    PrimesGenVecSeg primes = new PrimesGenVecSeg(sqrtN + 1, uL, preSievedPrimes, method);
+                    primes.run();
+                    return primes.getPrimes().size();
+                });
+            }
+        }
+    }
+
+    /**
+     * Runs one benchmark and prints its result line.
+     * A benchmark that throws is reported as failed and the others still run.
+     *
+     * @param name       The name of the benchmark.
+     * @param uL         The upper limit of prime generation.
+     * @param warmups    The number of warm-up iterations.
+     * @param iterations The number of measured iterations.
+     * @param millis     The duration of an iteration in milliseconds.
+     * @param operation  The operation, returning a value to be consumed.
+     */
+    private static void run(String name, int uL, int warmups, int iterations, long millis, Operation operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        try {
+            for (int i = 0; i < warmups; ++i) {
+                iterate(operation, millis);
+            }
+            double[] scores = new double[iterations];
+            long operations = 0;
+            long nanos = 0;
+            long gcCount = -gcCount();
+            long gcTime = -gcTime();
+            long allocated = -threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < iterations; ++i) {
+                long[] result = iterate(operation, millis);
+                scores[i] = result[0] * 1e9 / result[1];
+                operations += result[0];
+                nanos += result[1];
+            }
+            allocated += threads.getThreadAllocatedBytes(thread);
+            gcCount += gcCount();
+            gcTime += gcTime();
+
+            double mean = 0;
+            for (double score : scores) {
+                mean += score / iterations;
+            }
+            double variance = 0;
+            for (double score : scores) {
+                variance += (score - mean) * (score - mean) / (iterations - 1);
+            }
+            double error = 3.29 * Math.sqrt(variance / iterations);
+            System.out.printf(Locale.ROOT, "%-28s %12d %14.3f %12.3f %12s %12.0f B %8d %6d ms%n",
+                    name, uL, mean, error, "ops/s", (double) allocated / operations, gcCount, gcTime);
+            System.out.printf(Locale.ROOT, "%-28s %12s %14.3f %12s %12s%n",
+                    "  gc.alloc.rate", "", allocated / (nanos / 1e9) / (1 << 20), "", "MB/s");
+        } catch (RuntimeException | OutOfMemoryError e) {
+            System.out.printf("%-28s %12d failed: %s%n", name, uL, e);
+        }
+    }
+
+    /**
+     * Runs the operation repeatedly for at least the given duration, and at least once.
+     *
+     * @param operation The operation.
+     * @param millis    The duration in milliseconds.
+     * @return The number of operations and the elapsed nanoseconds.
+     */
+    private static long[] iterate(Operation operation, long millis) {
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        long count = 0;
+        long now;
+        do {
+            sink += operation.run();
+            ++count;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return new long[]{count, now - start};
+    }
+
+    /**
+     * Returns the total number of garbage collections so far.
+     *
+     * @return The number of collections.
+     */
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total time spent in garbage collections so far.
+     *
+     * @return The collection time in milliseconds.
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * A benchmarked operation.
+     */
+    private interface Operation {
+        /**
+         * Runs the operation once.
+         *
+         * @return A value depending on the result, consumed so the work is not removed.
+         */
+        long run();
+    }
+}
@@ -1,129 +1,694 @@
+import PrimesGen.IntList;
+import PrimesGen.PrimesBinaryWriter;
+import PrimesGen.PrimesCoordinator;
 import PrimesGen.PrimesGen;
+import PrimesGen.PrimesGenForkJoin;
+import PrimesGen.PrimesGenLongSeg;
 import PrimesGen.PrimesGenSeg;
 import PrimesGen.PrimesGenVec;
 import PrimesGen.PrimesGenVecSeg;
+import PrimesGen.PrimesIndex;
+import PrimesGen.PrimesManifest;
+import PrimesGen.PrimesPi;
+import PrimesGen.PrimesStats;
+import PrimesGen.PrimesWriter;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 public class Main {
+    /**
+     * The smallest width of a segment of a checkpointed run.
+     */
+    private static final long CHECKPOINT_SPAN = 1L << 26;
+
+    /**
+     * The largest number of segments of a checkpointed run, wider runs get wider segments.
+     */
+    private static final long CHECKPOINT_SEGMENTS = 1L << 20;
+
+    /**
+     * The width of a chunk of a pipelined run.
+     */
+    private static final int PIPELINE_CHUNK = 1 << 22;
+
+    /**
+     * The number of chunks per thread that a pipelined run may hold in memory at a time.
+     */
+    private static final int PIPELINE_DEPTH = 2;
+
     public static void main(String[] args) {
         try {
-            if (args.length != 4) {
+            if (args.length != 4 && args.length != 5) {
                 throw new IllegalArgumentException("Invalid arguments");
             }
             int threads = Integer.parseInt(args[0]);
             byte methods = Byte.parseByte(args[1]);
-            int n = Integer.parseInt(args[2]);
+            long limit = Long.parseLong(args[2]);
             String file = args[3];
-            if (threads == 1 && (methods == 1 || methods == 3)) {
+            String mode = args.length == 5 ? args[4] : "";
+            if (mode.equals("count")) {
+                if (threads < 1 || (methods != 1 && methods != 5)) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                System.out.println(count(threads, limit));
+                return;
+            }
+            if (mode.equals("pi")) {
+                if (threads < 1) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                System.out.println(new PrimesPi(threads).pi(limit));
+                return;
+            }
+            if (mode.equals("checkpoint")) {
+                if (threads < 1 || (methods != 1 && methods != 5)) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                checkpoint(threads, limit, file);
+                return;
+            }
+            if (mode.equals("distributed") || mode.equals("distributed-count")) {
+                if (threads < 1 || (methods != 1 && methods != 5)) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                PrimesCoordinator coordinator = new PrimesCoordinator(threads, limit, mode.equals("distributed") ? file : null);
+                coordinator.run();
+                if (mode.equals("distributed-count")) {
+                    System.out.println(coordinator.getCount());
+                }
+                return;
+            }
+            if (limit > Integer.MAX_VALUE) {
+                if (threads < 1 || (methods != 1 && methods != 5) || !mode.isEmpty()) {
+                    throw new IllegalArgumentException("Invalid arguments");
+                }
+                longRange(threads, limit, file);
+                return;
+            }
+            int n = (int) limit;
+            if (mode.equals("forkjoin") && threads >= 1 && methods >= 0 && methods <= 6) {
+                forkJoin(threads, methods, n, file);
+            } else if (mode.equals("direct") && threads >= 1 && methods >= 0 && methods <= 6) {
+                direct(threads, methods, n, file);
+            } else if (mode.equals("binary") && threads >= 1 && methods >= 0 && methods <= 6) {
+                binary(threads, methods, n, file);
+            } else if (mode.equals("stats") && threads >= 1 && methods >= 0 && methods <= 6) {
+                System.out.println(stats(threads, methods, n, file));
+            } else if (mode.equals("index") && threads >= 1 && methods >= 0 && methods <= 6) {
+                forkJoin(threads, methods, n, file);
+                index(n, file);
+            } else if (!mode.isEmpty()) {
+                throw new IllegalArgumentException("Invalid arguments");
+            } else if (threads == 1 && (methods == 1 || methods == 3 || methods == 5 || methods == 6)) {
                 PrimesGen results = new PrimesGen(n, methods, file);
                 results.run();
             } else if (threads == 1 && (methods == 0 || methods == 2 || methods == 4)) {
                 PrimesGenVec results = new PrimesGenVec(n, methods, file);
                 results.run();
                 results.outputToFile();
-            } else if (threads > 1 && (methods == 1 || methods == 3)) {
-                int sqrtN = (int) Math.sqrt(n);
+            } else if (threads > 1 && (methods == 1 || methods == 3 || methods == 5 || methods == 6)) {
+                int sqrtN = preSieveLimit(n);
 
                 PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods, file);
                 Thread preSievingThread = new Thread(preSieve, "Pre-sieveing thread.");
                 preSievingThread.start();
 
-                int perThread = (n - sqrtN) / threads;
+                int[][] ranges = split(threads, sqrtN, n);
                 List<Thread> threadList = new ArrayList<>();
                 List<PrimesGenSeg> results = new ArrayList<>();
 
                 preSievingThread.join();
-                List<Integer> preSievedPrimes = preSieve.getPrimes();
+                IntList preSievedPrimes = preSieve.getPrimes();
 
-                for (int i = 0; i < threads; ++i) {
-                    int lL = sqrtN + i * perThread + 1;
-                    int uL = sqrtN + (i + 1) * perThread;
+                for (int i = 0; i < ranges.length; ++i) {
                     String fileName = ".temp+" + i + "+" + file;
 
-                    if (i == threads - 1) {
-                        uL = n;
-                    }
-
-                    results.add(new PrimesGenSeg(lL, uL, preSievedPrimes, methods, fileName));
+                    results.add(new PrimesGenSeg(ranges[i][0], ranges[i][1], preSievedPrimes, methods, fileName));
 
                     threadList.add(new Thread(results.get(i), fileName));
                     threadList.get(i).start();
                 }
 
-                BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
+                PrimesWriter output = new PrimesWriter(new File(file));
 
                 preSieve.output(output);
 
-                for (int i = 0; i < threads; ++i) {
+                for (int i = 0; i < ranges.length; ++i) {
                     threadList.get(i).join();
                     String fileName = ".temp+" + i + "+" + file;
                     File tempFile = new File(fileName);
                     if (!tempFile.exists() && !tempFile.createNewFile()) {
                         throw new RuntimeException("Unable to create new file: " + fileName);
                     }
-                    BufferedReader reader = new BufferedReader(new FileReader(tempFile));
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.write(line);
-                    }
+                    output.append(tempFile);
                     if (!tempFile.delete()) {
                         throw new RuntimeException("Failed to delete file: " + tempFile);
                     }
                 }
                 output.close();
             } else if (threads > 1 && (methods == 0 || methods == 2 || methods == 4)) {
-                int sqrtN = (int) Math.sqrt(n);
+                pipeline(threads, methods, n, file);
+            } else throw new IllegalArgumentException("Invalid arguments");
+        } catch (IOException | InterruptedException e) {
+            e.printStackTrace();
+            System.err.println("Please submit your issue at https://github.com/Water-Buckets/findPrimes-Java/issues");
+            throw new RuntimeException(e);
+        } catch (IllegalArgumentException e) {
+            e.printStackTrace();
+            throw new RuntimeException(e);
+        }
+    }
 
-                PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods, file);
-                Thread preSievingThread = new Thread(preSieve, "Pre-sieveing thread.");
-                preSievingThread.start();
+    /**
+     * Returns the limit of the pre-sieve of a run up to n: the square root of n, or n itself if less than two numbers
+     * would be left above the square root, since a segment holds at least two numbers.
+     *
+     * @param n The upper limit.
+     * @return The limit of the pre-sieve.
+     */
+    private static int preSieveLimit(int n) {
+        int sqrtN = (int) Math.sqrt(Math.max(n, 0));
+        return n - sqrtN < 2 ? Math.max(n, 0) : sqrtN;
+    }
 
-                int perThread = (n - sqrtN) / threads;
+    /**
+     * Splits the range above the pre-sieve evenly between the threads, at least two numbers each,
+     * so a narrow range is split between fewer threads. The last range takes the remainder.
+     *
+     * @param threads The number of worker threads.
+     * @param sqrtN   The limit of the pre-sieve, see {@link #preSieveLimit(int)}.
+     * @param n       The upper limit.
+     * @return The ranges in ascending order, {lL, uL} each, both inclusive.
+     */
+    private static int[][] split(int threads, int sqrtN, int n) {
+        int workers = Math.max(0, Math.min(threads, (n - sqrtN) / 2));
+        int[][] ranges = new int[workers][];
+        int perThread = workers < 1 ? 0 : (n - sqrtN) / workers;
+        for (int i = 0; i < workers; ++i) {
+            int lL = sqrtN + i * perThread + 1;
+            int uL = i == workers - 1 ? n : sqrtN + (i + 1) * perThread;
+            ranges[i] = new int[]{lL, uL};
+        }
+        return ranges;
+    }
 
-                List<Thread> threadList = new ArrayList<>();
-                List<PrimesGenVecSeg> results = new ArrayList<>();
+    /**
+     * Generates the primes up to n on a work-stealing ForkJoinPool.
+     * The range above the square root of n is cut into many small chunks that are balanced between the threads,
+     * the primes are written in order once all chunks are done.
+     *
+     * @param threads The number of worker threads.
+     * @param methods The method to be used for prime generation.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void forkJoin(int threads, byte methods, int n, String file) throws IOException {
+        int sqrtN = preSieveLimit(n);
 
-                preSievingThread.join();
-                List<Integer> preSievedPrimes = preSieve.getPrimes();
+        PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods);
+        preSieve.run();
 
-                for (int i = 0; i < threads; ++i) {
-                    int lL = sqrtN + i * perThread + 1;
-                    int uL = sqrtN + (i + 1) * perThread;
-                    String fileName = ".temp+" + i + "+" + file;
+        PrimesWriter output = new PrimesWriter(new File(file));
+        preSieve.output(output);
+        if (n > sqrtN) {
+            PrimesGenForkJoin results = new PrimesGenForkJoin(sqrtN + 1, n, preSieve.getPrimes(), methods, threads);
+            results.run();
+            results.output(output);
+        }
+        output.close();
+    }
+
+    /**
+     * Generates the primes up to n on a work-stealing ForkJoinPool and writes them in the compact binary
+     * prime file format, see {@link PrimesBinaryWriter}.
+     *
+     * @param threads The number of worker threads.
+     * @param methods The method to be used for prime generation.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void binary(int threads, byte methods, int n, String file) throws IOException {
+        int sqrtN = preSieveLimit(n);
+
+        PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods);
+        preSieve.run();
+
+        PrimesBinaryWriter output = new PrimesBinaryWriter(new File(file));
+        output.write(preSieve.getPrimes());
+        if (n > sqrtN) {
+            PrimesGenForkJoin results = new PrimesGenForkJoin(sqrtN + 1, n, preSieve.getPrimes(), methods, threads);
+            results.run();
+            for (IntList primes : results.getResults()) {
+                output.write(primes);
+            }
+        }
+        output.close();
+    }
+
+    /**
+     * Writes a memory-mapped prime index of all primes up to n beside the output file, named file + ".idx".
+     * See {@link PrimesIndex} for the queries it answers.
+     *
+     * @param n    The upper limit.
+     * @param file The name of the output file.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static void index(int n, String file) throws IOException {
+        PrimesGenVec basePrimes = new PrimesGenVec((int) Math.sqrt(n), (byte) 5);
+        basePrimes.run();
+        PrimesIndex.write(new File(file + ".idx"), n, basePrimes.getPrimes());
+    }
+
+    /**
+     * Generates the primes up to n with one in-memory worker per thread and writes them without temporary files.
+     * Once all workers are done, the byte length of each worker's output is summed up to get the file position of
+     * its region, and every worker's primes are written straight into their region of the output file in parallel.
+     *
+     * @param threads The number of worker threads.
+     * @param methods The method to be used for prime generation.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException          If an I/O error occurs.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private static void direct(int threads, byte methods, int n, String file) throws IOException, InterruptedException {
+        int sqrtN = preSieveLimit(n);
+
+        PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods);
+        preSieve.run();
+
+        int[][] ranges = split(threads, sqrtN, n);
+        List<PrimesGenVec> results = new ArrayList<>();
+        List<Thread> threadList = new ArrayList<>();
+        results.add(preSieve);
+
+        for (int i = 0; i < ranges.length; ++i) {
+            PrimesGenVecSeg result = new PrimesGenVecSeg(ranges[i][0], ranges[i][1], preSieve.getPrimes(), methods);
+            results.add(result);
+            threadList.add(new Thread(result, "Sieving thread " + i));
+            threadList.get(i).start();
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
 
-                    if (i == threads - 1) {
-                        uL = n;
+        long[] positions = new long[results.size()];
+        for (int i = 1; i < results.size(); ++i) {
+            positions[i] = positions[i - 1] + results.get(i - 1).outputLength();
+        }
+
+        try (FileChannel channel = FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            List<Thread> writers = new ArrayList<>();
+            IOException[] failure = new IOException[1];
+            for (int i = 0; i < results.size(); ++i) {
+                PrimesGenVec result = results.get(i);
+                long position = positions[i];
+                writers.add(new Thread(() -> {
+                    try {
+                        result.output(channel, position);
+                    } catch (IOException e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
                     }
+                }, "Writing thread " + i));
+                writers.get(i).start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+    }
 
-                    results.add(new PrimesGenVecSeg(lL, uL, preSievedPrimes, methods, fileName));
+    /**
+     * Generates the primes up to a limit beyond 2^31 - 1 with the 64-bit segmented engine.
+     * The range above the square root of n is split evenly between the threads,
+     * each thread writes a temporary file which is appended to the output afterwards.
+     *
+     * @param threads The number of worker threads.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException          If an I/O error occurs.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private static void longRange(int threads, long n, String file) throws IOException, InterruptedException {
+        long sqrtN = PrimesGenLongSeg.sqrt(n);
+        if (sqrtN > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid arguments");
+        }
 
-                    threadList.add(new Thread(results.get(i), fileName));
-                    threadList.get(i).start();
+        PrimesGenVec preSieve = new PrimesGenVec((int) sqrtN, (byte) 5, file);
+        preSieve.run();
+        IntList preSievedPrimes = preSieve.getPrimes();
+
+        long perThread = (n - sqrtN) / threads;
+        List<Thread> threadList = new ArrayList<>();
+
+        for (int i = 0; i < threads; ++i) {
+            long lL = sqrtN + i * perThread + 1;
+            long uL = i == threads - 1 ? n : sqrtN + (i + 1) * perThread;
+            String fileName = ".temp+" + i + "+" + file;
+
+            threadList.add(new Thread(new PrimesGenLongSeg(lL, uL, preSievedPrimes, fileName), fileName));
+            threadList.get(i).start();
+        }
+
+        PrimesWriter output = new PrimesWriter(new File(file));
+
+        preSieve.output(output);
+
+        for (int i = 0; i < threads; ++i) {
+            threadList.get(i).join();
+            File tempFile = new File(".temp+" + i + "+" + file);
+            output.append(tempFile);
+            if (!tempFile.delete()) {
+                throw new RuntimeException("Failed to delete file: " + tempFile);
+            }
+        }
+        output.close();
+    }
+
+    /**
+     * Counts the primes up to n without writing them, for the mode "count". The file argument is not used.
+     * The range above the square root of n is split evenly between the threads, at least two numbers each,
+     * each thread sieves its part block by block and only sums up the set bits of every block, the counts of the threads are added up at the end.
+     *
+     * @param threads The number of worker threads.
+     * @param n       The upper limit.
+     * @return The number of primes up to n.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private static long count(int threads, long n) throws InterruptedException {
+        long sqrtN = PrimesGenLongSeg.sqrt(Math.max(n, 0));
+        if (sqrtN > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid arguments");
+        }
+        int workers = (int) Math.min(threads, (n - sqrtN) / 2);
+        if (workers < 1) {
+            sqrtN = Math.max(n, 0);
+        }
+
+        PrimesGenVec preSieve = new PrimesGenVec((int) sqrtN, (byte) 5);
+        preSieve.run();
+        IntList preSievedPrimes = preSieve.getPrimes();
+
+        long perThread = workers < 1 ? 0 : (n - sqrtN) / workers;
+        List<PrimesGenLongSeg> results = new ArrayList<>();
+        List<Thread> threadList = new ArrayList<>();
+
+        for (int i = 0; i < workers; ++i) {
+            long lL = sqrtN + i * perThread + 1;
+            long uL = i == workers - 1 ? n : sqrtN + (i + 1) * perThread;
+            PrimesGenLongSeg result = new PrimesGenLongSeg(lL, uL, preSievedPrimes);
+            results.add(result);
+            threadList.add(new Thread(result, "Counting thread " + i));
+            threadList.get(threadList.size() - 1).start();
+        }
+
+        long count = preSievedPrimes.size();
+        for (int i = 0; i < threadList.size(); ++i) {
+            threadList.get(i).join();
+            count += results.get(i).getCount();
+        }
+        return count;
+    }
+
+    /**
+     * Generates the primes up to n in a run that can be resumed, for the mode "checkpoint".
+     * The range above the square root of n is cut into segments of at least CHECKPOINT_SPAN numbers, which the threads
+     * take one at a time. Each segment is written to its own part file, file + ".part" + its index, and once the part is
+     * synced to the disk the segment is recorded in the manifest, file + ".manifest", see {@link PrimesManifest}.
+     * A run started again with the same limit and file skips the segments of the manifest whose part is still there.
+     * When all segments are finished the parts are appended to the output in order, then they and the manifest are deleted.
+     *
+     * @param threads The number of worker threads.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException          If an I/O error occurs.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private static void checkpoint(int threads, long n, String file) throws IOException, InterruptedException {
+        long sqrtN = PrimesGenLongSeg.sqrt(Math.max(n, 0));
+        if (sqrtN > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid arguments");
+        }
+        if (n - sqrtN < 2) {
+            sqrtN = Math.max(n, 0);
+        }
+        long span = Math.max(CHECKPOINT_SPAN, (n - sqrtN + CHECKPOINT_SEGMENTS - 1) / CHECKPOINT_SEGMENTS);
+        int segments = n - sqrtN < 2 ? 0 : (int) Math.max(1, (n - sqrtN) / span);
+
+        PrimesGenVec preSieve = new PrimesGenVec((int) sqrtN, (byte) 5);
+        preSieve.run();
+        IntList preSievedPrimes = preSieve.getPrimes();
+
+        PrimesManifest manifest = new PrimesManifest(new File(file + ".manifest"), n, span);
+        List<Integer> pending = new ArrayList<>();
+        for (int k = 0; k < segments; ++k) {
+            if (!manifest.isDone(k) || !new File(file + ".part" + k).exists()) {
+                pending.add(k);
+            }
+        }
+        if (pending.size() < segments) {
+            System.err.println("Resuming: " + (segments - pending.size()) + " of " + segments + " segments already done.");
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        Exception[] failure = new Exception[1];
+        List<Thread> threadList = new ArrayList<>();
+        long lowest = sqrtN;
+        for (int i = 0; i < Math.min(threads, pending.size()); ++i) {
+            threadList.add(new Thread(() -> {
+                try {
+                    for (int j = next.getAndIncrement(); j < pending.size() && failure[0] == null; j = next.getAndIncrement()) {
+                        int k = pending.get(j);
+                        long lL = lowest + k * span + 1;
+                        long uL = k == segments - 1 ? n : lowest + (k + 1) * span;
+                        File part = new File(file + ".part" + k);
+                        new PrimesGenLongSeg(lL, uL, preSievedPrimes, part).run();
+                        try (FileChannel channel = FileChannel.open(part.toPath(), StandardOpenOption.WRITE)) {
+                            channel.force(true);
+                        }
+                        manifest.markDone(k);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
                 }
+            }, "Checkpointed sieving thread " + i));
+            threadList.get(i).start();
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            manifest.close();
+            if (failure[0] instanceof IOException) {
+                throw (IOException) failure[0];
+            }
+            throw (RuntimeException) failure[0];
+        }
+        for (int k = 0; k < segments; ++k) {
+            if (!manifest.isDone(k)) {
+                manifest.close();
+                throw new IOException("Segment " + k + " of " + file + " is not done.");
+            }
+        }
+
+        PrimesWriter output = new PrimesWriter(new File(file));
+        preSieve.output(output);
+        for (int k = 0; k < segments; ++k) {
+            output.append(new File(file + ".part" + k));
+        }
+        output.close();
+        for (int k = 0; k < segments; ++k) {
+            File part = new File(file + ".part" + k);
+            if (!part.delete()) {
+                throw new RuntimeException("Failed to delete file: " + part);
+            }
+        }
+        manifest.delete();
+    }
 
-                BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
+    /**
+     * Generates the primes up to n with the in-memory engines, sieving and writing at the same time.
+     * The range above the square root of n is cut into chunks of PIPELINE_CHUNK numbers, which the sieving threads
+     * take in ascending order. Every finished chunk is handed over to a dedicated writing thread, which writes the
+     * chunks in order as soon as they are ready and then drops them, while the sieving threads carry on.
+     * A sieving thread may only take a new chunk while fewer than PIPELINE_DEPTH chunks per thread are sieved or
+     * waiting to be written, so the memory needed is bounded by that window instead of by all primes up to n.
+     *
+     * @param threads The number of sieving threads.
+     * @param methods The method to be used for prime generation.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @throws IOException          If an I/O error occurs.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    private static void pipeline(int threads, byte methods, int n, String file) throws IOException, InterruptedException {
+        int sqrtN = preSieveLimit(n);
 
+        PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods);
+        preSieve.run();
+        IntList preSievedPrimes = preSieve.getPrimes();
+
+        int chunks = n - sqrtN < 2 ? 0 : Math.max(1, (n - sqrtN) / PIPELINE_CHUNK);
+        AtomicReferenceArray<CompletableFuture<PrimesGenVec>> results = new AtomicReferenceArray<>(chunks);
+        for (int k = 0; k < chunks; ++k) {
+            results.set(k, new CompletableFuture<>());
+        }
+        Semaphore window = new Semaphore(PIPELINE_DEPTH * threads);
+        AtomicInteger next = new AtomicInteger();
+        Throwable[] failure = new Throwable[1];
+
+        Thread writer = new Thread(() -> {
+            try (PrimesWriter output = new PrimesWriter(new File(file))) {
                 preSieve.output(output);
+                for (int k = 0; k < chunks; ++k) {
+                    PrimesGenVec chunk = results.get(k).join();
+                    results.set(k, null);
+                    chunk.output(output);
+                    window.release();
+                }
+            } catch (Throwable e) {
+                synchronized (failure) {
+                    failure[0] = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                }
+                next.set(chunks);
+                window.release(threads);
+            }
+        }, "Writing thread");
+        writer.start();
 
-                BufferedWriter outputAppend = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
-                for (int i = 0; i < threads; ++i) {
-                    threadList.get(i).join();
-                    results.get(i).output(outputAppend);
+        List<Thread> threadList = new ArrayList<>();
+        for (int i = 0; i < Math.min(threads, chunks); ++i) {
+            threadList.add(new Thread(() -> {
+                boolean holding = false;
+                try {
+                    while (true) {
+                        window.acquire();
+                        holding = true;
+                        int k = next.getAndIncrement();
+                        if (k >= chunks) {
+                            window.release();
+                            return;
+                        }
+                        int lL = sqrtN + k * PIPELINE_CHUNK + 1;
+                        int uL = k == chunks - 1 ? n : sqrtN + (k + 1) * PIPELINE_CHUNK;
+                        PrimesGenVecSeg chunk = new PrimesGenVecSeg(lL, uL, preSievedPrimes, methods);
+                        chunk.run();
+                        holding = false;
+                        results.get(k).complete(chunk);
+                    }
+                } catch (Throwable e) {
+                    // Fail every chunk that is not done, so the writing thread stops instead of waiting forever.
+                    for (int k = 0; k < chunks; ++k) {
+                        CompletableFuture<PrimesGenVec> result = results.get(k);
+                        if (result != null) {
+                            result.completeExceptionally(e);
+                        }
+                    }
+                    if (holding) {
+                        window.release();
+                    }
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
                 }
-                output.close();
-                outputAppend.close();
-            } else throw new IllegalArgumentException("Invalid arguments");
-        } catch (IOException | InterruptedException e) {
-            e.printStackTrace();
-            System.err.println("Please submit your issue at https://github.com/Water-Buckets/findPrimes-Java/issues");
-            throw new RuntimeException(e);
-        } catch (IllegalArgumentException e) {
-            e.printStackTrace();
-            throw new RuntimeException(e);
+            }, "Sieving thread " + i));
+            threadList.get(i).start();
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+        writer.join();
+        if (failure[0] instanceof IOException) {
+            throw (IOException) failure[0];
+        }
+        if (failure[0] instanceof InterruptedException) {
+            throw (InterruptedException) failure[0];
+        }
+        if (failure[0] instanceof Error) {
+            throw (Error) failure[0];
+        }
+        if (failure[0] != null) {
+            throw (RuntimeException) failure[0];
+        }
+    }
+
+    /**
+     * Generates the primes up to n like the default mode and gathers their gap and constellation statistics on the way,
+     * for the mode "stats", see {@link PrimesStats}.
+     * Every thread feeds its own statistics with the primes of its range while it generates them, the statistics of
+     * the ranges are merged in order at the end, fixing up the boundaries between them.
+     *
+     * @param threads The number of worker threads.
+     * @param methods The method to be used for prime generation.
+     * @param n       The upper limit.
+     * @param file    The name of the output file.
+     * @return The merged statistics of all primes up to n.
+     * @throws IOException          If an I/O error occurs.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private static PrimesStats stats(int threads, byte methods, int n, String file) throws IOException, InterruptedException {
+        int sqrtN = preSieveLimit(n);
+        boolean inMemory = methods == 0 || methods == 2 || methods == 4;
+
+        PrimesStats total = new PrimesStats();
+        PrimesGenVec preSieve = new PrimesGenVec(sqrtN, methods);
+        preSieve.setStats(total);
+        preSieve.run();
+
+        int[][] ranges = split(threads, sqrtN, n);
+        List<PrimesGen> results = new ArrayList<>();
+        List<PrimesStats> stats = new ArrayList<>();
+        List<Thread> threadList = new ArrayList<>();
+
+        for (int i = 0; i < ranges.length; ++i) {
+            String fileName = ".temp+" + i + "+" + file;
+            PrimesGen result = inMemory
+                    ? new PrimesGenVecSeg(ranges[i][0], ranges[i][1], preSieve.getPrimes(), methods)
+                    : new PrimesGenSeg(ranges[i][0], ranges[i][1], preSieve.getPrimes(), methods, fileName);
+            PrimesStats partial = new PrimesStats();
+            result.setStats(partial);
+            results.add(result);
+            stats.add(partial);
+            threadList.add(new Thread(result, inMemory ? "Sieving thread " + i : fileName));
+            threadList.get(i).start();
+        }
+
+        PrimesWriter output = new PrimesWriter(new File(file));
+        preSieve.output(output);
+        for (int i = 0; i < threadList.size(); ++i) {
+            threadList.get(i).join();
+            if (inMemory) {
+                ((PrimesGenVec) results.get(i)).output(output);
+            } else {
+                File tempFile = results.get(i).getFile();
+                output.append(tempFile);
+                if (!tempFile.delete()) {
+                    throw new RuntimeException("Failed to delete file: " + tempFile);
+                }
+            }
+            total.merge(stats.get(i));
         }
+        output.close();
+        return total;
     }
-}
\ No newline at end of file
+}
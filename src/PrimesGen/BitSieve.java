@@ -0,0 +1,84 @@
+package PrimesGen;
+
+import java.util.Arrays;
+
+/**
+ * BitSieve holds the bit-packed, odds-only storage used by the bit sieve engines (method 5).
+ * Only odd numbers are stored, one bit each, in a long array: bit i of the full-range sieve stands for 2i + 1.
+ * The segmented engines use the same layout block by block through {@link SegmentedBitSieve}.
+ * A set bit marks a prime, so the array can be scanned a word at a time with {@link Long#numberOfTrailingZeros(long)}.
+ * <p>
+ * Compared with a boolean array of size 'uL + 1' this needs 16 times less memory.
+ */
+final class BitSieve {
+    private BitSieve() {
+    }
+
+    /**
+     * Returns the number of odd numbers in [1, uL].
+     *
+     * @param uL The upper limit.
+     * @return The number of odd numbers up to uL.
+     */
+    static int oddCount(int uL) {
+        return uL < 1 ? 0 : uL / 2 + (uL & 1);
+    }
+
+    /**
+     * Sieves all odd numbers up to the given upper limit (uL).
+     *
+     * <p>Time Complexity: O(n log(log n)), where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(n / 16) bytes, where n is the upper limit of numbers to check for primality.
+     *
+     * @param uL The upper limit for prime number generation.
+     * @return The sieve, bit i is set if and only if 2i + 1 is prime.
+     */
+    static long[] sieve(int uL) {
+        int bits = oddCount(uL);
+        long[] words = new long[(bits + 63) >>> 6];
+        Arrays.fill(words, -1L);
+        clearTail(words, bits);
+        if (bits > 0) {
+            words[0] &= ~1L;
+        }
+        for (int i = 1; (long) (2 * i + 1) * (2 * i + 1) <= uL; ++i) {
+            if ((words[i >>> 6] & (1L << i)) != 0) {
+                int p = 2 * i + 1;
+                for (long j = (long) p * p >>> 1; j < bits; j += p) {
+                    words[(int) (j >>> 6)] &= ~(1L << j);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the base primes needed to sieve a range up to uL with a segmented engine.
+     *
+     * @param uL The upper limit of the range, its square root must fit in an integer data type.
+     * @return The odd primes up to the square root of uL, in ascending order.
+     */
+    static int[] basePrimes(long uL) {
+        long[] words = sieve((int) PrimesGenLongSeg.sqrt(uL));
+        IntList primes = new IntList();
+        for (int w = 0; w < words.length; ++w) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                primes.add(2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1);
+            }
+        }
+        return primes.toArray();
+    }
+
+    /**
+     * Clears the bits beyond the last valid one, so that they are never reported as primes.
+     *
+     * @param words The sieve.
+     * @param bits  The number of valid bits.
+     */
+    private static void clearTail(long[] words, int bits) {
+        if ((bits & 63) != 0) {
+            words[words.length - 1] = -1L >>> (64 - (bits & 63));
+        }
+    }
+}
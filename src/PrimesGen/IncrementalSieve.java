@@ -0,0 +1,197 @@
+package PrimesGen;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * IncrementalSieve is an unbounded incremental Sieve of Eratosthenes, used by the incremental sieve engines (method 4).
+ * It yields the primes one at a time in ascending order without an upper limit, so a consumer can stop whenever it likes.
+ * <p>
+ * The next odd multiple of each odd prime found so far is kept in a binary min-heap of primitive longs, keyed by the
+ * multiple (O'Neill, "The Genuine Sieve of Eratosthenes"). A candidate is prime if it is not at the top of the heap;
+ * otherwise each entry at the top is moved on to its next odd multiple. A prime p is only added to the heap when the
+ * candidates reach p * p, with the primes taken from a second, lazily created IncrementalSieve. The heap therefore
+ * only ever holds the primes up to the square root of the current candidate.
+ * <p>
+ * Time Complexity: O(n log log n) heap updates, each O(log pi(sqrt(n))), for all primes up to n.
+ * <p>
+ * Space Complexity: O(pi(sqrt(n))), where n is the last candidate.
+ * <p>
+ * Usage:
+ * <pre>
+ * IncrementalSieve primes = new IncrementalSieve();
+ * for (long p = primes.nextLong(); p &lt; 100; p = primes.nextLong()) {
+ *     // p is 2, 3, 5, 7, ...
+ * }
+ * </pre>
+ * An instance is not thread safe.
+ */
+public class IncrementalSieve implements PrimitiveIterator.OfLong {
+    /**
+     * The next multiple of each prime in the heap.
+     */
+    private long[] multiples = new long[16];
+
+    /**
+     * The step of each prime in the heap, twice the prime, so only odd multiples are visited.
+     */
+    private long[] steps = new long[16];
+
+    /**
+     * The number of primes in the heap.
+     */
+    private int size;
+
+    /**
+     * The source of the primes to be added to the heap, created on first use.
+     */
+    private IncrementalSieve basePrimes;
+
+    /**
+     * The next prime to be added to the heap.
+     */
+    private long nextBase = 3;
+
+    /**
+     * The square of nextBase, the candidate at which it is added to the heap.
+     */
+    private long nextSquare = 9;
+
+    /**
+     * The last candidate.
+     */
+    private long candidate;
+
+    /**
+     * Whether 2 is still to be returned.
+     */
+    private boolean two;
+
+    /**
+     * Constructs an IncrementalSieve starting at 2.
+     */
+    public IncrementalSieve() {
+        this(2);
+    }
+
+    /**
+     * Constructs an IncrementalSieve whose first prime is the smallest prime not below from.
+     * All primes whose square is below from are added to the heap up front, at their first odd multiple not below from,
+     * so the cost of starting is O(sqrt(from)) instead of sieving everything below from.
+     *
+     * @param from The number to start at.
+     */
+    public IncrementalSieve(long from) {
+        this.two = from <= 2;
+        long start = Math.max(from, 3) | 1;
+        this.candidate = start - 2;
+        while (nextSquare < start) {
+            long multiple = (start + nextBase - 1) / nextBase * nextBase;
+            if ((multiple & 1) == 0) {
+                multiple += nextBase;
+            }
+            push(multiple, 2 * nextBase);
+            advanceBase();
+        }
+    }
+
+    /**
+     * Moves nextBase on to the next odd prime.
+     */
+    private void advanceBase() {
+        if (basePrimes == null) {
+            basePrimes = new IncrementalSieve(nextBase + 1);
+        }
+        nextBase = basePrimes.nextLong();
+        nextSquare = nextBase * nextBase;
+    }
+
+    /**
+     * Returns true, there is always a next prime.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean hasNext() {
+        return true;
+    }
+
+    /**
+     * Returns the next prime.
+     *
+     * @return The next prime.
+     */
+    @Override
+    public long nextLong() {
+        if (two) {
+            two = false;
+            return 2;
+        }
+        while (true) {
+            candidate += 2;
+            if (candidate == nextSquare) {
+                push(nextSquare + 2 * nextBase, 2 * nextBase);
+                advanceBase();
+                continue;
+            }
+            if (size == 0 || multiples[0] != candidate) {
+                return candidate;
+            }
+            do {
+                multiples[0] += steps[0];
+                siftDown();
+            } while (multiples[0] == candidate);
+        }
+    }
+
+    /**
+     * Adds a prime to the heap.
+     *
+     * @param multiple The next multiple of the prime.
+     * @param step     Twice the prime.
+     */
+    private void push(long multiple, long step) {
+        if (size == multiples.length) {
+            multiples = Arrays.copyOf(multiples, size * 2);
+            steps = Arrays.copyOf(steps, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (multiples[parent] <= multiple) {
+                break;
+            }
+            multiples[i] = multiples[parent];
+            steps[i] = steps[parent];
+            i = parent;
+        }
+        multiples[i] = multiple;
+        steps[i] = step;
+    }
+
+    /**
+     * Restores the heap order after the multiple at the top has grown.
+     */
+    private void siftDown() {
+        long multiple = multiples[0];
+        long step = steps[0];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && multiples[child + 1] < multiples[child]) {
+                ++child;
+            }
+            if (multiples[child] >= multiple) {
+                break;
+            }
+            multiples[i] = multiples[child];
+            steps[i] = steps[child];
+            i = child;
+        }
+        multiples[i] = multiple;
+        steps[i] = step;
+    }
+}
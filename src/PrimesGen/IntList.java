@@ -0,0 +1,176 @@
+package PrimesGen;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * IntList is a growable list of primitive ints, used to store generated and pre-sieved primes without boxing.
+ * The elements are kept in an int array that grows by half of its size when it is full.
+ * <p>
+ * Note: This class is not thread safe. A list that is shared between threads, like the pre-sieved primes,
+ * must not be modified after it has been handed over.
+ */
+public class IntList {
+    /**
+     * The backing array.
+     */
+    private int[] elements;
+
+    /**
+     * The number of elements in the list.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list.
+     */
+    public IntList() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty list with the given initial capacity.
+     *
+     * @param capacity The initial capacity.
+     * @throws IllegalArgumentException If the capacity is negative.
+     */
+    public IntList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Invalid capacity");
+        }
+        this.elements = new int[capacity];
+    }
+
+    /**
+     * Appends an element to the end of the list.
+     *
+     * @param value The element to be appended.
+     */
+    public void add(int value) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = value;
+    }
+
+    /**
+     * Appends all elements of another list to the end of this list.
+     *
+     * @param other The list whose elements are to be appended.
+     */
+    public void addAll(IntList other) {
+        addAll(other.elements, 0, other.size);
+    }
+
+    /**
+     * Appends the elements values[from], ..., values[to - 1] to the end of the list.
+     *
+     * @param values The array holding the elements.
+     * @param from   The index of the first element, inclusive.
+     * @param to     The index of the last element, exclusive.
+     */
+    public void addAll(int[] values, int from, int to) {
+        int count = to - from;
+        if (size + count > elements.length) {
+            grow(size + count);
+        }
+        System.arraycopy(values, from, elements, size, count);
+        size += count;
+    }
+
+    /**
+     * Returns the element at the given index.
+     *
+     * @param index The index of the element.
+     * @return The element.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    public int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return elements[index];
+    }
+
+    /**
+     * Replaces the element at the given index.
+     *
+     * @param index The index of the element.
+     * @param value The new element.
+     * @throws IndexOutOfBoundsException If the index is out of range.
+     */
+    public void set(int index, int value) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        elements[index] = value;
+    }
+
+    /**
+     * Returns the number of elements in the list.
+     *
+     * @return The size of the list.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether the list is empty.
+     *
+     * @return true if the list holds no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all elements from the list, keeping its capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns a copy of the elements as an int array.
+     *
+     * @return The elements of the list.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Performs the given action for each element, in order.
+     *
+     * @param action The action to be performed.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; ++i) {
+            action.accept(elements[i]);
+        }
+    }
+
+    /**
+     * Returns a sequential IntStream over the elements.
+     *
+     * @return The stream of elements.
+     */
+    public IntStream stream() {
+        return Arrays.stream(elements, 0, size);
+    }
+
+    /**
+     * Grows the backing array to hold at least the given number of elements.
+     *
+     * @param minCapacity The required capacity.
+     */
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, elements.length + (elements.length >> 1) + 1);
+        if (capacity < 0) {
+            capacity = Integer.MAX_VALUE - 8;
+        }
+        elements = Arrays.copyOf(elements, capacity);
+    }
+}
@@ -0,0 +1,197 @@
+package PrimesGen;
+
+import java.util.stream.IntStream;
+
+/**
+ * PrimalityTest decides whether a single 64-bit number is prime without sieving up to it, the backing of
+ * {@link Primes#isPrime(long)}.
+ * <ol>
+ * <li>Numbers up to SMALL_LIMIT are looked up in a bitmap of {@link BitSieve}, sieved once on first use.</li>
+ * <li>Bigger numbers are first divided by the odd primes below TRIAL_LIMIT, which rejects most composites at once.</li>
+ * <li>The rest go through the Miller-Rabin test with the 7 bases of Jim Sinclair, which is deterministic for every
+ * number below 2^64. The modular multiplications use Montgomery reduction with R = 2^64, so there is no division
+ * in the inner loop, only Math.multiplyHigh.</li>
+ * </ol>
+ * All methods are static and thread safe.
+ */
+final class PrimalityTest {
+    /**
+     * The numbers up to this limit are looked up in the bitmap.
+     */
+    static final int SMALL_LIMIT = 1 << 20;
+
+    /**
+     * The odd primes below this limit are used for trial division.
+     */
+    private static final int TRIAL_LIMIT = 256;
+
+    /**
+     * The Miller-Rabin bases that are deterministic for every 64-bit number.
+     */
+    private static final long[] BASES = {2, 325, 9375, 28178, 450775, 9780504, 1795265022};
+
+    /**
+     * Batches at least this long are tested in parallel.
+     */
+    private static final int PARALLEL_BATCH = 1 << 12;
+
+    private PrimalityTest() {
+    }
+
+    /**
+     * Holds the bitmap and the trial division primes, created on first use.
+     */
+    private static final class Small {
+        /**
+         * The odds-only bitmap of the primes up to SMALL_LIMIT.
+         */
+        static final long[] BITMAP = BitSieve.sieve(SMALL_LIMIT);
+
+        /**
+         * The odd primes below TRIAL_LIMIT.
+         */
+        static final int[] TRIAL_PRIMES = IntStream.iterate(3, p -> p < TRIAL_LIMIT, p -> p + 2)
+                .filter(p -> (BITMAP[p >>> 7] & (1L << (p >>> 1))) != 0).toArray();
+    }
+
+    /**
+     * Returns whether a number is prime.
+     *
+     * @param n The number.
+     * @return true if n is prime.
+     */
+    static boolean isPrime(long n) {
+        if (n < 2) {
+            return false;
+        }
+        if ((n & 1) == 0) {
+            return n == 2;
+        }
+        if (n <= SMALL_LIMIT) {
+            return (Small.BITMAP[(int) (n >>> 7)] & (1L << (n >>> 1))) != 0;
+        }
+        for (int p : Small.TRIAL_PRIMES) {
+            if (n % p == 0) {
+                return false;
+            }
+        }
+        return millerRabin(n);
+    }
+
+    /**
+     * Returns whether each number of a batch is prime.
+     * The bitmap is loaded once for the whole batch, and a long batch is tested in parallel.
+     *
+     * @param numbers The numbers.
+     * @return The results, in the order of the numbers.
+     */
+    static boolean[] isPrime(long[] numbers) {
+        boolean[] result = new boolean[numbers.length];
+        IntStream indices = IntStream.range(0, numbers.length);
+        if (numbers.length >= PARALLEL_BATCH) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> result[i] = isPrime(numbers[i]));
+        return result;
+    }
+
+    /**
+     * Runs the deterministic Miller-Rabin test.
+     *
+     * @param n An odd number bigger than the largest base that is not 0 modulo n, below 2^63.
+     * @return true if n is prime.
+     */
+    private static boolean millerRabin(long n) {
+        long inverse = inverse(n);
+        long one = Long.remainderUnsigned(-n, n);
+        long r2 = one;
+        for (int i = 0; i < 64; ++i) {
+            r2 = r2 << 1;
+            if (r2 < 0 || r2 >= n) {
+                r2 -= n;
+            }
+        }
+        long minusOne = n - one;
+        long d = n - 1;
+        int s = Long.numberOfTrailingZeros(d);
+        d >>>= s;
+
+        for (long base : BASES) {
+            long a = base % n;
+            if (a == 0) {
+                continue;
+            }
+            long x = power(multiply(a, r2, n, inverse), d, one, n, inverse);
+            if (x == one || x == minusOne) {
+                continue;
+            }
+            boolean composite = true;
+            for (int i = 1; i < s; ++i) {
+                x = multiply(x, x, n, inverse);
+                if (x == minusOne) {
+                    composite = false;
+                    break;
+                }
+                if (x == one) {
+                    break;
+                }
+            }
+            if (composite) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the inverse of an odd number modulo 2^64, by Newton's iteration.
+     *
+     * @param n An odd number.
+     * @return The inverse of n modulo 2^64.
+     */
+    private static long inverse(long n) {
+        long x = n;
+        for (int i = 0; i < 5; ++i) {
+            x *= 2 - n * x;
+        }
+        return x;
+    }
+
+    /**
+     * Returns the Montgomery product a * b / 2^64 modulo n.
+     *
+     * @param a       A number in [0, n).
+     * @param b       A number in [0, n).
+     * @param n       The odd modulus, below 2^63.
+     * @param inverse The inverse of n modulo 2^64.
+     * @return The Montgomery product, in [0, n).
+     */
+    private static long multiply(long a, long b, long n, long inverse) {
+        long high = Math.multiplyHigh(a, b);
+        long m = a * b * inverse;
+        long mHigh = Math.multiplyHigh(m, n) + ((m >> 63) & n);
+        long t = high - mHigh;
+        return t < 0 ? t + n : t;
+    }
+
+    /**
+     * Returns the Montgomery power base^e.
+     *
+     * @param base    The base, in Montgomery form.
+     * @param e       The exponent.
+     * @param one     1 in Montgomery form, 2^64 modulo n.
+     * @param n       The odd modulus, below 2^63.
+     * @param inverse The inverse of n modulo 2^64.
+     * @return The power, in Montgomery form.
+     */
+    private static long power(long base, long e, long one, long n, long inverse) {
+        long result = one;
+        for (; e != 0; e >>>= 1) {
+            if ((e & 1) != 0) {
+                result = multiply(result, base, n, inverse);
+            }
+            base = multiply(base, base, n, inverse);
+        }
+        return result;
+    }
+}
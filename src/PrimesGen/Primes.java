@@ -0,0 +1,83 @@
+package PrimesGen;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Primes is the pull-based API of the package: it returns the primes in a range as a lazy stream instead of a file
+ * or a list.
+ * The primes are sieved one block at a time while the stream is consumed, see {@link PrimesSpliterator}, so a pipeline
+ * needs constant memory whatever the width of the range, and a parallel stream splits the range between the cores
+ * of the common ForkJoinPool.
+ * <p>
+ * Usage:
+ * <pre>
+ * long count = Primes.primes(1, 1_000_000_000L).parallel().filter(p -&gt; p % 4 == 1).count();
+ * int sum = Primes.primes(1, 100).sum();
+ * boolean prime = Primes.isPrime(1_000_000_007L);
+ * </pre>
+ * Single numbers are tested with {@link #isPrime(long)}, which does not sieve up to the number, see
+ * {@link PrimalityTest}.
+ */
+public final class Primes {
+    private Primes() {
+    }
+
+    /**
+     * Returns the primes in [lL, uL] as a sequential, lazy LongStream.
+     *
+     * @param lL The lower limit of the range.
+     * @param uL The upper limit of the range.
+     * @return The primes in ascending order.
+     * @throws IllegalArgumentException If the square root of uL does not fit in an integer data type.
+     */
+    public static LongStream primes(long lL, long uL) {
+        return StreamSupport.longStream(spliterator(lL, uL), false);
+    }
+
+    /**
+     * Returns the primes in [lL, uL] as a sequential, lazy IntStream.
+     *
+     * @param lL The lower limit of the range.
+     * @param uL The upper limit of the range.
+     * @return The primes in ascending order.
+     */
+    public static IntStream primes(int lL, int uL) {
+        return primes((long) lL, uL).mapToInt(p -> (int) p);
+    }
+
+    /**
+     * Returns a spliterator over the primes in [lL, uL].
+     *
+     * @param lL The lower limit of the range.
+     * @param uL The upper limit of the range.
+     * @return The spliterator.
+     * @throws IllegalArgumentException If the square root of uL does not fit in an integer data type.
+     */
+    public static PrimesSpliterator spliterator(long lL, long uL) {
+        return new PrimesSpliterator(lL, uL);
+    }
+
+    /**
+     * Returns whether a number is prime.
+     * Numbers up to 2^20 are looked up in a cached sieve, bigger ones are tested by trial division and the
+     * deterministic Miller-Rabin test, which is exact for the whole range of long.
+     *
+     * @param n The number.
+     * @return true if n is prime.
+     */
+    public static boolean isPrime(long n) {
+        return PrimalityTest.isPrime(n);
+    }
+
+    /**
+     * Returns whether each number of a batch is prime; a long batch is tested in parallel.
+     *
+     * @param numbers The numbers.
+     * @return The results, result[i] is true if numbers[i] is prime.
+     */
+    public static boolean[] isPrime(long[] numbers) {
+        return PrimalityTest.isPrime(numbers);
+    }
+}
@@ -0,0 +1,285 @@
+package PrimesGen;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * PrimesBinaryReader streams the primes of a file written by {@link PrimesBinaryWriter}.
+ * The block data is read sequentially through a large buffer and decoded on the fly, so the primes are never
+ * materialised as a whole. The block index is loaded when the file is opened, which allows {@link #seek(long)}
+ * to jump straight to the block holding a given number.
+ * <p>
+ * Usage:
+ * <pre>
+ * try (PrimesBinaryReader reader = new PrimesBinaryReader(file)) {
+ *     while (reader.hasNext()) {
+ *         long p = reader.nextLong();
+ *     }
+ * }
+ * </pre>
+ * I/O errors while iterating are thrown as {@link UncheckedIOException}.
+ */
+public class PrimesBinaryReader implements PrimitiveIterator.OfLong, Closeable {
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer of the block data.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+    /**
+     * The total number of primes.
+     */
+    private final long count;
+
+    /**
+     * The first prime of each block.
+     */
+    private final long[] blockFirst;
+
+    /**
+     * The number of primes in each block.
+     */
+    private final int[] blockCount;
+
+    /**
+     * The file position of the data of each block.
+     */
+    private final long[] blockPosition;
+
+    /**
+     * The file position of the next byte to be read into the buffer.
+     */
+    private long readPosition;
+
+    /**
+     * The current block.
+     */
+    private int block = -1;
+
+    /**
+     * The number of primes of the current block that have not been decoded yet.
+     */
+    private int left;
+
+    /**
+     * The last prime decoded.
+     */
+    private long last;
+
+    /**
+     * Whether a prime has been decoded by {@link #seek(long)} but not returned yet.
+     */
+    private boolean pending;
+
+    /**
+     * Opens a file and loads its header and block index.
+     *
+     * @param file The file to be read.
+     * @throws IOException If an I/O error occurs or the file is not a binary prime file.
+     */
+    public PrimesBinaryReader(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(0, PrimesBinaryWriter.HEADER_SIZE);
+            if (header.getInt() != PrimesBinaryWriter.MAGIC || header.getInt() != PrimesBinaryWriter.VERSION) {
+                throw new IOException("Not a binary prime file: " + file);
+            }
+            header.getInt();
+            int blocks = header.getInt();
+            this.count = header.getLong();
+            long indexPosition = header.getLong();
+
+            this.blockFirst = new long[blocks];
+            this.blockCount = new int[blocks];
+            this.blockPosition = new long[blocks];
+            ByteBuffer index = readFully(indexPosition, blocks * PrimesBinaryWriter.INDEX_ENTRY_SIZE);
+            for (int b = 0; b < blocks; ++b) {
+                blockFirst[b] = index.getLong();
+                blockCount[b] = index.getInt();
+                blockPosition[b] = index.getLong();
+            }
+            this.readPosition = blocks == 0 ? indexPosition : blockPosition[0];
+            this.buffer.limit(0);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the given number of bytes at the given position.
+     *
+     * @param position The file position.
+     * @param length   The number of bytes.
+     * @return A buffer holding the bytes, ready to be read.
+     * @throws IOException If an I/O error occurs or the file is too short.
+     */
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            int n = channel.read(bytes, position + bytes.position());
+            if (n < 0) {
+                throw new EOFException("Truncated binary prime file");
+            }
+        }
+        return bytes.flip();
+    }
+
+    /**
+     * Returns the total number of primes in the file.
+     *
+     * @return The number of primes.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the number of blocks in the file.
+     *
+     * @return The number of blocks.
+     */
+    public int getBlocks() {
+        return blockFirst.length;
+    }
+
+    /**
+     * Returns the first prime of a block.
+     *
+     * @param block The index of the block.
+     * @return The first prime of the block.
+     */
+    public long getBlockFirst(int block) {
+        return blockFirst[block];
+    }
+
+    /**
+     * Returns the number of primes in a block.
+     *
+     * @param block The index of the block.
+     * @return The number of primes in the block.
+     */
+    public int getBlockCount(int block) {
+        return blockCount[block];
+    }
+
+    /**
+     * Moves the reader so that the next prime returned is the smallest prime in the file not below x.
+     * Only the block holding x is decoded.
+     *
+     * @param x The number to seek to.
+     */
+    public void seek(long x) {
+        int lo = 0;
+        int hi = blockFirst.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (blockFirst[mid] <= x) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        block = lo - 1;
+        left = 0;
+        pending = false;
+        if (blockFirst.length == 0) {
+            return;
+        }
+        readPosition = blockPosition[lo];
+        buffer.limit(0);
+        while (hasNext()) {
+            long p = nextLong();
+            if (p >= x) {
+                pending = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns whether there are more primes.
+     *
+     * @return true if there are more primes.
+     */
+    @Override
+    public boolean hasNext() {
+        return pending || left > 0 || block + 1 < blockFirst.length;
+    }
+
+    /**
+     * Returns the next prime.
+     *
+     * @return The next prime.
+     * @throws NoSuchElementException If there are no more primes.
+     * @throws UncheckedIOException   If an I/O error occurs.
+     */
+    @Override
+    public long nextLong() {
+        if (pending) {
+            pending = false;
+            return last;
+        }
+        if (left == 0) {
+            if (block + 1 >= blockFirst.length) {
+                throw new NoSuchElementException();
+            }
+            ++block;
+            left = blockCount[block] - 1;
+            last = blockFirst[block];
+            return last;
+        }
+        long gap = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = readByte();
+            gap |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        --left;
+        last = last == 2 ? 3 : last + 2 * gap;
+        return last;
+    }
+
+    /**
+     * Reads the next byte of block data, refilling the buffer when it is empty.
+     *
+     * @return The next byte.
+     * @throws UncheckedIOException If an I/O error occurs or the file is too short.
+     */
+    private byte readByte() {
+        if (!buffer.hasRemaining()) {
+            try {
+                buffer.clear();
+                int n = channel.read(buffer, readPosition);
+                if (n <= 0) {
+                    throw new EOFException("Truncated binary prime file");
+                }
+                readPosition += n;
+                buffer.flip();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return buffer.get();
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
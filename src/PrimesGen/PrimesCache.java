@@ -0,0 +1,284 @@
+package PrimesGen;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.stream.LongStream;
+
+/**
+ * PrimesCache answers isPrime, nextPrime and primesBetween queries up to a limit from sieved segments kept in memory.
+ * It suits query loads that keep coming back to a few regions: only the segments that are asked for are sieved,
+ * and they are kept until the memory budget is used up.
+ * <p>
+ * The range [0, limit] is cut into segments of SEGMENT_SPAN numbers, segment k covering [k * SEGMENT_SPAN,
+ * (k + 1) * SEGMENT_SPAN). A segment is sieved by a {@link SegmentedBitSieve} the first time it is needed and stored
+ * as its odds-only bitmap of SEGMENT_WORDS longs, bit i standing for k * SEGMENT_SPAN + 2i + 1. The base primes up
+ * to the square root of the limit are sieved once, when the cache is created.
+ * <p>
+ * The segments are kept in access order, and when there are more than memoryBudget / SEGMENT_BYTES of them the least
+ * recently used one is dropped. A segment is loaded outside the lock: the first thread that misses it puts a
+ * FutureTask in the map and runs it, and every other thread asking for the same segment waits for that task instead
+ * of sieving it again.
+ * <p>
+ * Time Complexity: O(SEGMENT_SPAN log log n + pi(sqrt(n))) for a miss, O(1) for a hit to isPrime.
+ * <p>
+ * Space Complexity: O(memoryBudget + pi(sqrt(limit))).
+ * <p>
+ * Usage:
+ * <pre>
+ * PrimesCache cache = new PrimesCache(1_000_000_000_000L, 64L &lt;&lt; 20);
+ * boolean prime = cache.isPrime(999_999_999_989L);
+ * long next = cache.nextPrime(999_999_999_989L);
+ * long[] primes = cache.primesBetween(999_999_000_000L, 999_999_999_999L);
+ * </pre>
+ * A PrimesCache may be shared between threads.
+ */
+public class PrimesCache {
+    /**
+     * The number of odd numbers in a segment.
+     */
+    private static final int SEGMENT_BITS = SegmentedBitSieve.SEGMENT_WORDS << 6;
+
+    /**
+     * The width of a segment.
+     */
+    static final long SEGMENT_SPAN = 2L * SEGMENT_BITS;
+
+    /**
+     * The memory taken by a segment in bytes.
+     */
+    static final long SEGMENT_BYTES = 8L * SegmentedBitSieve.SEGMENT_WORDS;
+
+    /**
+     * The largest number that can be queried.
+     */
+    private final long limit;
+
+    /**
+     * The odd base primes up to the square root of the limit.
+     */
+    private final int[] basePrimes;
+
+    /**
+     * The cached segments by index, in access order. Guarded by itself.
+     */
+    private final LinkedHashMap<Long, FutureTask<long[]>> segments;
+
+    /**
+     * The number of lookups that found their segment in the cache. Guarded by segments.
+     */
+    private long hits;
+
+    /**
+     * The number of lookups that had to sieve their segment. Guarded by segments.
+     */
+    private long misses;
+
+    /**
+     * Constructor for the PrimesCache class.
+     *
+     * @param limit        The largest number that can be queried.
+     * @param memoryBudget The memory the segments may take in bytes; at least one segment is always kept.
+     * @throws IllegalArgumentException If the limit is negative or its square root does not fit in an integer data type.
+     */
+    public PrimesCache(long limit, long memoryBudget) {
+        if (limit < 0 || PrimesGenLongSeg.sqrt(limit) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+        this.limit = limit;
+        this.basePrimes = BitSieve.basePrimes(limit);
+        int maxSegments = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / SEGMENT_BYTES));
+        this.segments = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, FutureTask<long[]>> eldest) {
+                return size() > maxSegments;
+            }
+        };
+    }
+
+    /**
+     * Returns the largest number that can be queried.
+     *
+     * @return The limit.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the number of lookups that found their segment in the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        synchronized (segments) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns the number of lookups that had to sieve their segment.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        synchronized (segments) {
+            return misses;
+        }
+    }
+
+    /**
+     * Throws if a number is beyond the limit.
+     *
+     * @param x The number.
+     * @throws IllegalArgumentException If x is beyond the limit.
+     */
+    private void checkLimit(long x) {
+        if (x > limit) {
+            throw new IllegalArgumentException(x + " is beyond the limit of the cache: " + limit);
+        }
+    }
+
+    /**
+     * Returns the bitmap of a segment, sieving it if it is not cached.
+     *
+     * @param k The index of the segment.
+     * @return The bitmap, bit i stands for k * SEGMENT_SPAN + 2i + 1.
+     */
+    private long[] segment(long k) {
+        FutureTask<long[]> task;
+        boolean load = false;
+        synchronized (segments) {
+            task = segments.get(k);
+            if (task == null) {
+                task = new FutureTask<>(() -> sieve(k));
+                segments.put(k, task);
+                load = true;
+                ++misses;
+            } else {
+                ++hits;
+            }
+        }
+        if (load) {
+            task.run();
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            synchronized (segments) {
+                segments.remove(k, task);
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sieves a segment.
+     *
+     * @param k The index of the segment.
+     * @return The bitmap of the segment, bits beyond the limit are clear.
+     */
+    private long[] sieve(long k) {
+        long low = k * SEGMENT_SPAN;
+        long[] words = new long[SegmentedBitSieve.SEGMENT_WORDS];
+        SegmentedBitSieve sieve = new SegmentedBitSieve(low, Math.min(low + SEGMENT_SPAN - 1, limit), basePrimes);
+        if (sieve.next()) {
+            System.arraycopy(sieve.words(), 0, words, 0, (sieve.bits() + 63) >>> 6);
+        }
+        return words;
+    }
+
+    /**
+     * Returns whether a number is prime.
+     *
+     * @param x The number.
+     * @return true if x is prime.
+     * @throws IllegalArgumentException If x is beyond the limit.
+     */
+    public boolean isPrime(long x) {
+        checkLimit(x);
+        if (x < 3) {
+            return x == 2;
+        }
+        if ((x & 1) == 0) {
+            return false;
+        }
+        int i = (int) ((x % SEGMENT_SPAN) >>> 1);
+        return (segment(x / SEGMENT_SPAN)[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns the smallest prime bigger than x.
+     *
+     * @param x The number.
+     * @return The next prime, or -1 if there is none up to the limit.
+     */
+    public long nextPrime(long x) {
+        if (x < 2) {
+            return limit >= 2 ? 2 : -1;
+        }
+        if (x >= limit) {
+            return -1;
+        }
+        long k = (x + 1) / SEGMENT_SPAN;
+        int i = (int) (((x + 1) % SEGMENT_SPAN) >>> 1);
+        for (long last = limit / SEGMENT_SPAN; k <= last; ++k, i = 0) {
+            long[] words = segment(k);
+            int w = i >>> 6;
+            long word = words[w] & (-1L << i);
+            while (word == 0 && ++w < words.length) {
+                word = words[w];
+            }
+            if (word != 0) {
+                return k * SEGMENT_SPAN + 2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the primes in [lL, uL].
+     *
+     * @param lL The lower limit of the range.
+     * @param uL The upper limit of the range.
+     * @return The primes in ascending order.
+     * @throws IllegalArgumentException If uL is beyond the limit.
+     */
+    public long[] primesBetween(long lL, long uL) {
+        checkLimit(uL);
+        LongStream.Builder primes = LongStream.builder();
+        if (lL <= 2 && uL >= 2) {
+            primes.add(2);
+        }
+        long from = Math.max(lL, 3);
+        for (long k = from / SEGMENT_SPAN; from <= uL; ++k, from = k * SEGMENT_SPAN) {
+            long low = k * SEGMENT_SPAN + 1;
+            long[] words = segment(k);
+            int first = (int) ((from - low + 1) >>> 1);
+            int last = (int) ((Math.min(uL, low + SEGMENT_SPAN - 2) - low) >> 1);
+            if (first > last) {
+                continue;
+            }
+            for (int w = first >>> 6; w <= last >>> 6; ++w) {
+                long word = words[w];
+                if (w == first >>> 6) {
+                    word &= -1L << first;
+                }
+                if (w == last >>> 6) {
+                    word &= -1L >>> (63 - (last & 63));
+                }
+                for (; word != 0; word &= word - 1) {
+                    primes.add(low + 2 * ((w << 6) + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        }
+        return primes.build().toArray();
+    }
+}
@@ -0,0 +1,427 @@
+package PrimesGen;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PrimesCoordinator generates or counts the primes up to a limit with several worker processes, so a run is no longer
+ * bounded by the memory and the threads of a single JVM.
+ * <p>
+ * The coordinator sieves the primes up to the square root of the limit itself, cuts the range above it into ranges of
+ * at least MIN_SPAN numbers and listens on a TCP socket of the loopback interface. It then starts the worker processes,
+ * each a JVM running {@link PrimesWorker} with the same class path, which connect back and are handed one range at a
+ * time. The protocol is a stream of big-endian values of {@link DataOutputStream}:
+ * <pre>
+ * coordinator: int range, long lL, long uL, boolean count       (range -1: stop)
+ * worker:      int range, long count                             if count
+ *              int range, long length, byte[length] text         otherwise
+ * </pre>
+ * The text of a range is stored in a part file, file + ".part" + its index, and once all ranges are done the parts are
+ * appended to the output in order and deleted, as in the mode "checkpoint"; counts are simply added up.
+ * <p>
+ * Failures: when a connection breaks, times out or answers out of protocol, the range it held is put back in front of
+ * the queue and a replacement worker is started, so a crashed or killed worker costs only the range it was sieving.
+ * The timeout grows with the width of the ranges, so the wide ranges of the biggest limits do not time out.
+ * A range that failed MAX_ATTEMPTS times fails the run, as does running out of replacement workers.
+ * <p>
+ * Time Complexity: O(n log log n / workers), plus the transfer of the output over the sockets.
+ * <p>
+ * Space Complexity: O(sqrt(n)) in the coordinator, O(SEGMENT_WORDS + sqrt(n)) in each worker; the parts take as much
+ * disk space as the output.
+ * <p>
+ * Limitations: all processes run on the same machine, and a PrimesCoordinator can only be run once.
+ */
+public class PrimesCoordinator {
+    /**
+     * The smallest width of a range.
+     */
+    private static final long MIN_SPAN = 1L << 22;
+
+    /**
+     * The largest number of ranges, wider runs get wider ranges.
+     */
+    private static final long MAX_RANGES = 1L << 20;
+
+    /**
+     * The number of times a range is tried before the run fails.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The shortest time in milliseconds a worker may take to answer a range before it is considered failed.
+     */
+    private static final int MIN_TIMEOUT = 10 * 60 * 1000;
+
+    /**
+     * The slowest rate, in numbers per millisecond, at which a worker is still expected to sieve a range.
+     * Wide ranges get the time to sieve the widest range, the last one of up to twice the span, at this rate, which
+     * is far below the rate of any working sieve.
+     */
+    private static final long MIN_RATE = 1L << 14;
+
+    /**
+     * The number of worker processes running at a time.
+     */
+    private final int workers;
+
+    /**
+     * The upper limit.
+     */
+    private final long n;
+
+    /**
+     * The name of the output file, null if counting.
+     */
+    private final String file;
+
+    /**
+     * The limit of the pre-sieve, the ranges start above it.
+     */
+    private final long sqrtN;
+
+    /**
+     * The width of a range, the last one also takes the remainder.
+     */
+    private final long span;
+
+    /**
+     * The number of ranges.
+     */
+    private final int ranges;
+
+    /**
+     * The time in milliseconds a worker may take to answer a range before it is considered failed.
+     */
+    private final int timeout;
+
+    /**
+     * The ranges that are not taken by a worker, in ascending order except for the retried ones.
+     */
+    private final LinkedBlockingDeque<Integer> pending = new LinkedBlockingDeque<>();
+
+    /**
+     * The number of attempts of each range.
+     */
+    private final int[] attempts;
+
+    /**
+     * The count of each range, if counting.
+     */
+    private final long[] counts;
+
+    /**
+     * The number of ranges that are not finished.
+     */
+    private final CountDownLatch remaining;
+
+    /**
+     * The number of workers started so far.
+     */
+    private final AtomicInteger started = new AtomicInteger();
+
+    /**
+     * The worker processes.
+     */
+    private final List<Process> processes = new ArrayList<>();
+
+    /**
+     * The first failure that ended the run.
+     */
+    private volatile IOException failure;
+
+    /**
+     * The number of primes up to n, if counting.
+     */
+    private long count;
+
+    /**
+     * The socket the workers connect to, open while the ranges are sieved.
+     */
+    private ServerSocket server;
+
+    /**
+     * Constructor for the PrimesCoordinator class.
+     *
+     * @param workers The number of worker processes.
+     * @param n       The upper limit, its square root must fit in an integer data type.
+     * @param file    The name of the output file, null to only count the primes.
+     * @throws IllegalArgumentException If there are no workers or the limit is too big.
+     */
+    public PrimesCoordinator(int workers, long n, String file) {
+        long sqrtN = PrimesGenLongSeg.sqrt(Math.max(n, 0));
+        if (workers < 1 || sqrtN > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid arguments");
+        }
+        if (n - sqrtN < 2) {
+            sqrtN = Math.max(n, 0);
+        }
+        this.workers = workers;
+        this.n = n;
+        this.file = file;
+        this.sqrtN = sqrtN;
+        this.span = Math.max(MIN_SPAN, (n - sqrtN + MAX_RANGES - 1) / MAX_RANGES);
+        this.ranges = n - sqrtN < 2 ? 0 : (int) Math.max(1, (n - sqrtN) / span);
+        this.timeout = (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_TIMEOUT, 2 * span / MIN_RATE));
+        this.attempts = new int[ranges];
+        this.counts = new long[ranges];
+        this.remaining = new CountDownLatch(ranges);
+        for (int k = 0; k < ranges; ++k) {
+            pending.add(k);
+        }
+    }
+
+    /**
+     * Runs the coordinator and the workers until all ranges are done, then writes the output or adds up the counts.
+     *
+     * @throws IOException          If an I/O error occurs or a range failed too often.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    public void run() throws IOException, InterruptedException {
+        PrimesGenVec preSieve = new PrimesGenVec((int) sqrtN, (byte) 5);
+        preSieve.run();
+
+        if (ranges > 0) {
+            server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress());
+            try {
+                Thread acceptor = new Thread(this::accept, "Coordinator accepting thread");
+                acceptor.setDaemon(true);
+                acceptor.start();
+                for (int i = 0; i < Math.min(workers, ranges); ++i) {
+                    spawn();
+                }
+                while (!remaining.await(1, TimeUnit.SECONDS)) {
+                    if (failure == null && !alive()) {
+                        if (started.get() < workers * MAX_ATTEMPTS) {
+                            System.err.println("All workers have exited, starting a new one.");
+                            spawn();
+                        } else {
+                            fail(new IOException("All workers have exited."));
+                        }
+                    }
+                    if (failure != null) {
+                        throw failure;
+                    }
+                }
+            } finally {
+                server.close();
+                stop();
+            }
+        }
+
+        if (file == null) {
+            count = preSieve.getPrimes().size();
+            for (long c : counts) {
+                count += c;
+            }
+            return;
+        }
+        PrimesWriter output = new PrimesWriter(new File(file));
+        preSieve.output(output);
+        for (int k = 0; k < ranges; ++k) {
+            output.append(part(k));
+        }
+        output.close();
+        for (int k = 0; k < ranges; ++k) {
+            if (!part(k).delete()) {
+                throw new RuntimeException("Failed to delete file: " + part(k));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of primes up to n, once a counting run is finished.
+     *
+     * @return The number of primes.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the part file of a range.
+     *
+     * @param k The index of the range.
+     * @return The part file.
+     */
+    private File part(int k) {
+        return new File(file + ".part" + k);
+    }
+
+    /**
+     * Starts a worker process, unless too many have been started already.
+     *
+     * @throws IOException If the process cannot be started.
+     */
+    private void spawn() throws IOException {
+        if (started.getAndIncrement() >= workers * MAX_ATTEMPTS) {
+            return;
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                PrimesWorker.class.getName(), server.getInetAddress().getHostAddress(),
+                String.valueOf(server.getLocalPort()), String.valueOf(n));
+        builder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        synchronized (processes) {
+            processes.add(builder.start());
+        }
+    }
+
+    /**
+     * Returns whether a worker process is still running.
+     *
+     * @return true if a worker is running.
+     */
+    private boolean alive() {
+        synchronized (processes) {
+            return processes.stream().anyMatch(Process::isAlive);
+        }
+    }
+
+    /**
+     * Waits a moment for the workers to exit after they were told to stop, then kills the remaining ones.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void stop() throws InterruptedException {
+        synchronized (processes) {
+            for (Process process : processes) {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the failure that ends the run, the first one wins.
+     *
+     * @param e The failure.
+     */
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Accepts the connections of the workers and serves each on its own thread, until the server socket is closed.
+     */
+    private void accept() {
+        try {
+            for (int i = 0; ; ++i) {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serve(socket), "Coordinator serving thread " + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        } catch (SocketException e) {
+            // The server socket was closed, the run is over.
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Hands ranges to a worker one at a time and stores the results, until all ranges are done.
+     * If the worker fails, its range is queued again and a replacement worker is started.
+     *
+     * @param socket The connection to the worker.
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setSoTimeout(timeout);
+            while (remaining.getCount() > 0 && failure == null) {
+                Integer k = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (k == null) {
+                    continue;
+                }
+                try {
+                    request(in, out, k);
+                } catch (IOException e) {
+                    retry(k, e);
+                    return;
+                }
+                remaining.countDown();
+            }
+            out.writeInt(-1);
+            out.flush();
+        } catch (IOException e) {
+            // The worker went away after its last range, nothing is lost.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a range to a worker and stores its answer.
+     *
+     * @param in  The stream from the worker.
+     * @param out The stream to the worker.
+     * @param k   The index of the range.
+     * @throws IOException If the connection fails or the answer is out of protocol.
+     */
+    private void request(DataInputStream in, DataOutputStream out, int k) throws IOException {
+        long lL = sqrtN + k * span + 1;
+        long uL = k == ranges - 1 ? n : sqrtN + (k + 1) * span;
+        out.writeInt(k);
+        out.writeLong(lL);
+        out.writeLong(uL);
+        out.writeBoolean(file == null);
+        out.flush();
+        if (in.readInt() != k) {
+            throw new IOException("Unexpected answer for range " + k);
+        }
+        if (file == null) {
+            counts[k] = in.readLong();
+            return;
+        }
+        long length = in.readLong();
+        byte[] buffer = new byte[1 << 16];
+        try (OutputStream part = new FileOutputStream(part(k))) {
+            while (length > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, length));
+                if (read < 0) {
+                    throw new EOFException("Range " + k + " was cut short.");
+                }
+                part.write(buffer, 0, read);
+                length -= read;
+            }
+        }
+    }
+
+    /**
+     * Queues a failed range again and starts a replacement worker, or fails the run if the range failed too often.
+     *
+     * @param k The index of the range.
+     * @param e The failure.
+     */
+    private void retry(int k, IOException e) {
+        boolean again;
+        synchronized (attempts) {
+            again = ++attempts[k] < MAX_ATTEMPTS;
+        }
+        if (!again) {
+            fail(new IOException("Range " + k + " failed " + MAX_ATTEMPTS + " times.", e));
+            return;
+        }
+        System.err.println("Worker failed on range " + k + ", retrying: " + e);
+        pending.addFirst(k);
+        try {
+            spawn();
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+}
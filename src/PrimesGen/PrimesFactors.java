@@ -0,0 +1,230 @@
+package PrimesGen;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * PrimesFactors is a table of the smallest prime factor of every number up to a limit, and factors any number up to
+ * the limit in O(log n) lookups.
+ * <p>
+ * Only the odd numbers are stored, entry i of the int array is the smallest prime factor of 2i + 1 (1 for 1), so the
+ * table takes 2 bytes per number; the even numbers are divided by 2 before the lookups.
+ * With one thread the table is built by the linear sieve of {@link PrimesGenVec} (method 2): every odd composite n * p
+ * is written exactly once, by its smallest prime factor p, with p not bigger than the smallest prime factor of n.
+ * With more threads the table is cut into blocks that are sieved in parallel: the base primes up to the square root of
+ * the limit cross off their odd multiples in ascending order and only write the entries that are still empty, so each
+ * entry ends up with its smallest prime factor, and the entries left empty are primes.
+ * <p>
+ * Time Complexity: O(n) to build with one thread, O(n log log n) work with more threads, O(log n) per factorisation.
+ * <p>
+ * Space Complexity: O(n / 2) ints.
+ * <p>
+ * Usage:
+ * <pre>
+ * PrimesFactors table = new PrimesFactors(10_000_000, 4);
+ * int[] factors = table.factor(9_699_690);        // 2, 3, 5, 7, 11, 13, 17, 19
+ * int[][] all = table.factor(new int[]{12, 97, 1_000_000});
+ * </pre>
+ * A PrimesFactors is immutable once built and may be shared between threads.
+ */
+public class PrimesFactors {
+    /**
+     * The number of odd numbers in a block of the parallel build.
+     */
+    private static final int BLOCK = 1 << 15;
+
+    /**
+     * Batches at least this long are factored in parallel.
+     */
+    private static final int PARALLEL_BATCH = 1 << 12;
+
+    /**
+     * The largest number in the table.
+     */
+    private final int limit;
+
+    /**
+     * The smallest prime factor of each odd number, entry i for 2i + 1.
+     */
+    private final int[] spf;
+
+    /**
+     * Constructor for the PrimesFactors class.
+     *
+     * @param limit   The largest number to be factored.
+     * @param threads The number of threads building the table.
+     * @throws IllegalArgumentException If the limit is negative or there are no threads.
+     */
+    public PrimesFactors(int limit, int threads) {
+        if (limit < 0 || threads < 1) {
+            throw new IllegalArgumentException("Invalid arguments");
+        }
+        this.limit = limit;
+        this.spf = new int[BitSieve.oddCount(limit)];
+        if (spf.length > 0) {
+            spf[0] = 1;
+        }
+        if (threads == 1) {
+            linearSieve();
+        } else {
+            parallelSieve(threads);
+        }
+    }
+
+    /**
+     * Builds the table with the linear sieve.
+     *
+     * <p>Time Complexity: O(n), where n is the limit.
+     */
+    private void linearSieve() {
+        IntList primes = new IntList();
+        for (int i = 1; i < spf.length; ++i) {
+            int n = 2 * i + 1;
+            if (spf[i] == 0) {
+                spf[i] = n;
+                primes.add(n);
+            }
+            int smallest = spf[i];
+            for (int k = 0; k < primes.size(); ++k) {
+                int p = primes.get(k);
+                if (p > smallest || (long) n * p > limit) {
+                    break;
+                }
+                spf[(n * p) >>> 1] = p;
+            }
+        }
+    }
+
+    /**
+     * Builds the table with a segmented Sieve of Eratosthenes, one block at a time on each thread.
+     *
+     * <p>Time Complexity: O(n log log n / threads), where n is the limit.
+     *
+     * @param threads The number of threads.
+     */
+    private void parallelSieve(int threads) {
+        int[] basePrimes = BitSieve.basePrimes(limit);
+        int blocks = (spf.length + BLOCK - 1) / BLOCK;
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            for (int b = next.getAndIncrement(); b < blocks; b = next.getAndIncrement()) {
+                int from = b * BLOCK;
+                int to = Math.min(from + BLOCK, spf.length);
+                long low = 2L * from + 1;
+                for (int p : basePrimes) {
+                    long j = Math.max((long) p * p, (low + p - 1) / p * p);
+                    if ((j & 1) == 0) {
+                        j += p;
+                    }
+                    for (long i = j >>> 1; i < to; i += p) {
+                        if (spf[(int) i] == 0) {
+                            spf[(int) i] = p;
+                        }
+                    }
+                }
+                for (int i = Math.max(from, 1); i < to; ++i) {
+                    if (spf[i] == 0) {
+                        spf[i] = 2 * i + 1;
+                    }
+                }
+            }
+        };
+        Thread[] workers = new Thread[Math.min(threads, Math.max(blocks, 1))];
+        for (int t = 0; t < workers.length; ++t) {
+            workers[t] = new Thread(worker, "Factor table thread " + t);
+            workers[t].start();
+        }
+        try {
+            for (Thread thread : workers) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the largest number in the table.
+     *
+     * @return The limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Throws if a number cannot be looked up.
+     *
+     * @param n The number.
+     * @throws IllegalArgumentException If n is not positive or beyond the limit.
+     */
+    private void check(int n) {
+        if (n < 1 || n > limit) {
+            throw new IllegalArgumentException(n + " is not in [1, " + limit + "]");
+        }
+    }
+
+    /**
+     * Returns the smallest prime factor of a number.
+     *
+     * @param n The number, in [1, limit].
+     * @return The smallest prime factor of n, 1 for 1.
+     * @throws IllegalArgumentException If n is not positive or beyond the limit.
+     */
+    public int smallestFactor(int n) {
+        check(n);
+        return (n & 1) == 0 ? 2 : spf[n >>> 1];
+    }
+
+    /**
+     * Returns whether a number is prime.
+     *
+     * @param n The number, in [1, limit].
+     * @return true if n is prime.
+     * @throws IllegalArgumentException If n is not positive or beyond the limit.
+     */
+    public boolean isPrime(int n) {
+        return n > 1 && smallestFactor(n) == n;
+    }
+
+    /**
+     * Returns the prime factors of a number.
+     *
+     * @param n The number, in [1, limit].
+     * @return The prime factors of n with multiplicity, in ascending order, none for 1.
+     * @throws IllegalArgumentException If n is not positive or beyond the limit.
+     */
+    public int[] factor(int n) {
+        check(n);
+        int[] factors = new int[31];
+        int count = 0;
+        for (; (n & 1) == 0; n >>>= 1) {
+            factors[count++] = 2;
+        }
+        while (n > 1) {
+            int p = spf[n >>> 1];
+            factors[count++] = p;
+            n /= p;
+        }
+        return Arrays.copyOf(factors, count);
+    }
+
+    /**
+     * Returns the prime factors of each number of a batch, a long batch is factored in parallel.
+     *
+     * @param numbers The numbers, each in [1, limit].
+     * @return The factors, result[i] are the prime factors of numbers[i] as returned by {@link #factor(int)}.
+     * @throws IllegalArgumentException If a number is not positive or beyond the limit.
+     */
+    public int[][] factor(int[] numbers) {
+        int[][] result = new int[numbers.length][];
+        IntStream indices = IntStream.range(0, numbers.length);
+        if (numbers.length >= PARALLEL_BATCH) {
+            indices = indices.parallel();
+        }
+        indices.forEach(i -> result[i] = factor(numbers[i]));
+        return result;
+    }
+}
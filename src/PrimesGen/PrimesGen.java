@@ -1,21 +1,26 @@
 package PrimesGen;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 
 /**
  * primesGen is a class used to generate prime numbers up to a given upper limit (uL) using specified methods.
  * The generated prime numbers are written to a file.
- * The class supports two methods for generating prime numbers: the Sieve of Eratosthenes and the Sieve of Sundaram.
- * The method to be used is specified by a byte value (0-4) passed to the constructor.
+ * The class supports four methods for generating prime numbers: the Sieve of Eratosthenes, the Sieve of Sundaram,
+ * the bit-packed Sieve of Eratosthenes and the mod-30 wheel Sieve of Eratosthenes.
+ * The method to be used is specified by a byte value (0-6) passed to the constructor.
  * The class also includes a method to retrieve the name of the file to which the prime numbers are written.
  * <p>
  * Note: This class throws IOException if there is an error creating the file to which the prime numbers are written.
  * It also throws IllegalArgumentException if an invalid method is specified.
  */
 public class PrimesGen implements Runnable {
+    /**
+     * The number of integers the segmented engines sieve at a time (32 KiB of boolean flags, fits in the L1 cache).
+     */
+    protected static final int SEGMENT_SIZE = 1 << 15;
+
     /**
      * The upper limit up to which prime numbers are to be generated.
      */
@@ -36,6 +41,11 @@ public class PrimesGen implements Runnable {
      */
     protected byte method;
 
+    /**
+     * The statistics fed with every prime generated, or null.
+     */
+    protected PrimesStats stats;
+
     /**
      * The constructor for the primesGen class.
      *
@@ -48,7 +58,7 @@ public class PrimesGen implements Runnable {
      */
     public PrimesGen(int uL, byte method, String fileName) throws IOException {
         this.uL = uL;
-        if (method >= 0 && method <= 4) {
+        if (method >= 0 && method <= 6) {
             this.method = method;
         } else throw new IllegalArgumentException("Invaild method");
         this.fileName = fileName;
@@ -70,12 +80,47 @@ public class PrimesGen implements Runnable {
     public PrimesGen(int uL, byte method, File file) {
         this.uL = uL;
         this.file = file;
-        if (method >= 0 && method <= 4) {
+        if (method >= 0 && method <= 6) {
             this.method = method;
         } else throw new IllegalArgumentException("Invaild method");
         this.fileName = file.getName();
     }
 
+    /**
+     * Instantiates a new Primes gen that keeps its results in memory and has no file.
+     *
+     * @param uL     The upper limit for prime number generation.
+     * @param method The method to be used for prime number generation.
+     * @throws IllegalArgumentException If an invalid method is specified.
+     */
+    protected PrimesGen(int uL, byte method) {
+        this.uL = uL;
+        if (method >= 0 && method <= 6) {
+            this.method = method;
+        } else throw new IllegalArgumentException("Invaild method");
+    }
+
+    /**
+     * Sets the statistics to be fed with every prime generated, in ascending order, by the thread running this engine.
+     *
+     * @param stats The statistics, or null.
+     */
+    public void setStats(PrimesStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Opens the writer for the file, feeding the statistics if they are set.
+     *
+     * @return The writer.
+     * @throws IOException If the file could not be opened.
+     */
+    protected PrimesWriter openOutput() throws IOException {
+        PrimesWriter output = new PrimesWriter(file);
+        output.setStats(stats);
+        return output;
+    }
+
     /**
      * Implements the Sieve of Eratosthenes algorithm for finding all prime numbers up to a given limit.
      *
@@ -100,18 +145,18 @@ public class PrimesGen implements Runnable {
      * @throws IOException if an I/O error occurs when writing to the file
      */
     private void eratosthenesSieve() throws IOException {
-        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
+        PrimesWriter output = openOutput();
         if (uL >= 2) {
-            output.write(2 + " ");
+            output.write(2);
         }
         int k = uL + 1;
         boolean[] isPrime = new boolean[k];
         Arrays.fill(isPrime, true);
         for (int i = 3; i <= uL; i += 2) {
             if (isPrime[i]) {
-                output.write(i + " ");
-                for (int j = i * i; j <= uL; j += 2 * i) {
-                    isPrime[j] = false;
+                output.write(i);
+                for (long j = (long) i * i; j <= uL; j += 2L * i) {
+                    isPrime[(int) j] = false;
                 }
             }
         }
@@ -153,13 +198,90 @@ public class PrimesGen implements Runnable {
                 isPrime[j] = false;
             }
         }
-        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
+        PrimesWriter output = openOutput();
         if (uL >= 2) {
-            output.write(2 + " ");
+            output.write(2);
         }
         for (int i = 1; i < k + 1; ++i) {
             if (isPrime[i]) {
-                output.write((2 * i + 1) + " ");
+                output.write((2 * i + 1));
+            }
+        }
+        output.close();
+    }
+
+    /**
+     * Implements the bit-packed, odds-only Sieve of Eratosthenes for finding all prime numbers up to a given limit.
+     *
+     * <p>This method generates all prime numbers up to the given upper limit (uL) and writes them into a file.
+     * It works like {@link #eratosthenesSieve()}, but only odd numbers are stored, one bit each, in a long array.
+     * The result is scanned a word at a time, jumping straight to the next prime with Long.numberOfTrailingZeros.
+     *
+     * <p>Time Complexity: O(n log(log n)), where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(n / 16) bytes, where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Algorithm Characteristics:
+     * - Uses the mathematical property of prime numbers and their multiples.
+     * - Uses a long array (BitSieve) with one bit per odd number to keep track of prime numbers.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) of numbers to check for primality must fit in an integer data type.
+     * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
+     *
+     * @throws IOException if an I/O error occurs when writing to the file
+     */
+    private void bitSieve() throws IOException {
+        long[] words = BitSieve.sieve(uL);
+        PrimesWriter output = openOutput();
+        if (uL >= 2) {
+            output.write(2);
+        }
+        for (int w = 0; w < words.length; ++w) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                output.write((2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1));
+            }
+        }
+        output.close();
+    }
+
+    /**
+     * Implements the mod-30 wheel Sieve of Eratosthenes for finding all prime numbers up to a given limit.
+     *
+     * <p>This method generates all prime numbers up to the given upper limit (uL) and writes them into a file.
+     * The range is sieved block by block by a {@link WheelSieve}: only the numbers coprime to 30 are stored,
+     * one bit each, every block starts from a copy of a pattern with the multiples of 7, 11 and 13 already removed,
+     * and the other primes cross off only their multiples on the spokes of the wheel.
+     *
+     * <p>Time Complexity: O(n log(log n)), where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_BYTES + sqrt(n)), independent of the upper limit.
+     *
+     * <p>Algorithm Characteristics:
+     * - Uses the mathematical property of prime numbers and their multiples.
+     * - Uses a byte array (WheelSieve) with one bit per number coprime to 30 to keep track of prime numbers.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) of numbers to check for primality must fit in an integer data type.
+     * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
+     *
+     * @throws IOException if an I/O error occurs when writing to the file
+     */
+    private void wheelSieve() throws IOException {
+        WheelSieve sieve = new WheelSieve(1, uL, BitSieve.basePrimes(uL));
+        PrimesWriter output = openOutput();
+        for (int p : WheelSieve.WHEEL_PRIMES) {
+            if (p <= uL) {
+                output.write(p);
+            }
+        }
+        while (sieve.next()) {
+            byte[] bytes = sieve.bytes();
+            int low = (int) sieve.low();
+            for (int i = 0, n = sieve.length(); i < n; ++i) {
+                for (int bits = bytes[i] & 0xFF; bits != 0; bits &= bits - 1) {
+                    output.write(low + 30 * i + WheelSieve.RESIDUES[Integer.numberOfTrailingZeros(bits)]);
+                }
             }
         }
         output.close();
@@ -195,6 +317,8 @@ public class PrimesGen implements Runnable {
                 case 0, 2, 4 -> throw new IllegalArgumentException("Invalid method.");
                 case 1 -> eratosthenesSieve();
                 case 3 -> sundaramSieve();
+                case 5 -> bitSieve();
+                case 6 -> wheelSieve();
             }
         } catch (IOException e) {
             e.printStackTrace();
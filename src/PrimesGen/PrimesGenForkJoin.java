@@ -0,0 +1,159 @@
+package PrimesGen;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PrimesGenForkJoin generates prime numbers in a given range on a work-stealing {@link ForkJoinPool}.
+ * The range is cut into many small chunks, TASKS_PER_THREAD per thread, which are sieved by {@link PrimesGenVecSeg}.
+ * The chunks are split recursively into tasks, so an idle thread steals half of the remaining work of a busy one
+ * and an uneven method, like trial division, does not leave the other cores idle.
+ * The result of each chunk is stored by its index, so the primes still come out in order.
+ */
+public class PrimesGenForkJoin implements Runnable {
+    /**
+     * The number of chunks per thread.
+     */
+    private static final int TASKS_PER_THREAD = 32;
+
+    /**
+     * The lower limit of the range.
+     */
+    private final int lL;
+
+    /**
+     * The upper limit of the range.
+     */
+    private final int uL;
+
+    /**
+     * The list of pre-sieved primes.
+     */
+    private final IntList preSievedPrimes;
+
+    /**
+     * The method to be used for prime generation.
+     */
+    private final byte method;
+
+    /**
+     * The number of worker threads.
+     */
+    private final int parallelism;
+
+    /**
+     * The width of each chunk, the last chunk also takes the remainder.
+     */
+    private final int chunkSize;
+
+    /**
+     * The primes of each chunk, in order.
+     */
+    private final IntList[] results;
+
+    /**
+     * Constructor for the PrimesGenForkJoin class.
+     *
+     * @param lL              The lower limit of the range.
+     * @param uL              The upper limit of the range.
+     * @param preSievedPrimes The list of pre-sieved primes.
+     * @param method          The method to be used for prime generation.
+     * @param parallelism     The number of worker threads.
+     * @throws IllegalArgumentException If an invalid method or parallelism is specified.
+     *                                  Or lL is bigger than uL.
+     */
+    public PrimesGenForkJoin(int lL, int uL, IntList preSievedPrimes, byte method, int parallelism) {
+        if (lL >= uL) {
+            throw new IllegalArgumentException("lL should be smaller than uL.");
+        }
+        if (method < 0 || method > 6) {
+            throw new IllegalArgumentException("Invaild method");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Invalid parallelism");
+        }
+        this.lL = lL;
+        this.uL = uL;
+        this.preSievedPrimes = preSievedPrimes;
+        this.method = method;
+        this.parallelism = parallelism;
+        long width = (long) uL - lL + 1;
+        this.chunkSize = (int) Math.max(2, width / ((long) parallelism * TASKS_PER_THREAD));
+        this.results = new IntList[(int) Math.max(1, width / chunkSize)];
+    }
+
+    /**
+     * Sieves the chunks on a ForkJoinPool with the given parallelism and waits for all of them.
+     */
+    public void run() {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ChunkTask(0, results.length));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the primes of each chunk, in order.
+     *
+     * @return The results of the chunks.
+     */
+    public IntList[] getResults() {
+        return results;
+    }
+
+    /**
+     * Writes the generated prime numbers to a PrimesWriter, in order.
+     *
+     * @param output the PrimesWriter to be output.
+     * @throws IOException the io exception
+     */
+    public void output(PrimesWriter output) throws IOException {
+        for (IntList primes : results) {
+            output.write(primes);
+        }
+    }
+
+    /**
+     * A task sieving the chunks [from, to). It splits itself in half until a single chunk is left.
+     */
+    @SuppressWarnings("serial")
+    private final class ChunkTask extends RecursiveAction {
+        /**
+         * The index of the first chunk, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The index of the last chunk, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Constructor for the ChunkTask class.
+         *
+         * @param from The index of the first chunk, inclusive.
+         * @param to   The index of the last chunk, exclusive.
+         */
+        ChunkTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(from, mid), new ChunkTask(mid, to));
+                return;
+            }
+            int low = lL + from * chunkSize;
+            int high = from == results.length - 1 ? uL : low + chunkSize - 1;
+            PrimesGenVecSeg chunk = new PrimesGenVecSeg(low, high, preSievedPrimes, method);
+            chunk.run();
+            results[from] = chunk.getPrimes();
+        }
+    }
+}
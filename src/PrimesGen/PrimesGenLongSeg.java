@@ -0,0 +1,225 @@
+package PrimesGen;
+
+import java.io.*;
+
+/**
+ * PrimesGenLongSeg generates prime numbers in a 64-bit range [lL, uL] using the segmented, bit-packed Sieve of Eratosthenes.
+ * The limits are stored as long, while the pre-sieved primes up to the square root of uL still fit in an int.
+ * The range is sieved in fixed-size blocks by a {@link SegmentedBitSieve} and every block is written to the file
+ * before the next one is sieved, so the memory needed stays flat however far out the range is.
+ * Constructed without a file, it only counts the primes of the range: the set bits of every block are summed up
+ * with Long.bitCount, and no prime is ever formatted or stored.
+ * <p>
+ * Note: This class throws IOException if there is an error creating the file to which the prime numbers are written.
+ * It also throws IllegalArgumentException if lL is bigger than uL.
+ */
+public class PrimesGenLongSeg implements Runnable {
+    /**
+     * Lower limit of the range.
+     */
+    private final long lL;
+
+    /**
+     * Upper limit of the range.
+     */
+    private final long uL;
+
+    /**
+     * The pre-sieved primes up to the square root of uL.
+     */
+    private final int[] preSievedPrimes;
+
+    /**
+     * The name of the file to which the prime numbers are written.
+     */
+    private final String fileName;
+
+    /**
+     * A File object representing the file to which the prime numbers are written.
+     */
+    private final File file;
+
+    /**
+     * The number of primes in the range, set by run() when counting.
+     */
+    private long count;
+
+    /**
+     * Constructor for the PrimesGenLongSeg class.
+     *
+     * @param lL              Lower limit of the range
+     * @param uL              Upper limit of the range
+     * @param preSievedPrimes List of pre-sieved primes up to the square root of uL
+     * @param fileName        File name to write the output
+     * @throws IOException              If an I/O error occurs
+     * @throws IllegalArgumentException If lL is bigger than uL.
+     * @throws RuntimeException         If it was unable to create new file.
+     */
+    public PrimesGenLongSeg(long lL, long uL, IntList preSievedPrimes, String fileName) throws IOException {
+        this(lL, uL, preSievedPrimes, new File(fileName));
+        if (!file.exists() && !file.createNewFile()) {
+            throw new RuntimeException("Unable to create new file: " + fileName);
+        }
+    }
+
+    /**
+     * Constructor for the PrimesGenLongSeg class.
+     *
+     * @param lL              Lower limit of the range
+     * @param uL              Upper limit of the range
+     * @param preSievedPrimes List of pre-sieved primes up to the square root of uL
+     * @param file            File to write the output
+     * @throws IllegalArgumentException If lL is bigger than uL.
+     */
+    public PrimesGenLongSeg(long lL, long uL, IntList preSievedPrimes, File file) {
+        if (lL >= uL) {
+            throw new IllegalArgumentException("lL should be smaller than uL.");
+        }
+        this.lL = lL;
+        this.uL = uL;
+        this.preSievedPrimes = preSievedPrimes.toArray();
+        this.file = file;
+        this.fileName = file.getName();
+    }
+
+    /**
+     * Constructor for the PrimesGenLongSeg class without a file, run() only counts the primes of the range.
+     *
+     * @param lL              Lower limit of the range
+     * @param uL              Upper limit of the range
+     * @param preSievedPrimes List of pre-sieved primes up to the square root of uL
+     * @throws IllegalArgumentException If lL is bigger than uL.
+     */
+    public PrimesGenLongSeg(long lL, long uL, IntList preSievedPrimes) {
+        if (lL >= uL) {
+            throw new IllegalArgumentException("lL should be smaller than uL.");
+        }
+        this.lL = lL;
+        this.uL = uL;
+        this.preSievedPrimes = preSievedPrimes.toArray();
+        this.file = null;
+        this.fileName = null;
+    }
+
+    /**
+     * Returns the integer square root of x, the largest r with r * r <= x.
+     *
+     * @param x A non-negative number.
+     * @return The integer square root of x.
+     */
+    public static long sqrt(long x) {
+        long r = (long) Math.sqrt((double) x);
+        while (r * r > x) {
+            --r;
+        }
+        while (r < 3037000499L && (r + 1) * (r + 1) <= x) {
+            ++r;
+        }
+        return r;
+    }
+
+    /**
+     * Implements the segmented, bit-packed Sieve of Eratosthenes for a 64-bit range.
+     *
+     * <p>This method generates all prime numbers between the given lower limit (lL) and upper limit (uL) and writes them into a file.
+     * It works block by block: each block of odd numbers is crossed off with the pre-sieved primes, scanned, written and then reused.
+     *
+     * <p>Time Complexity: O(n log log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_WORDS + sqrt(uL)), independent of the width and the offset of the range.
+     *
+     * <p>Limitations:
+     * - The square root of the upper limit (uL) must fit in an integer data type.
+     * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
+     *
+     * @throws IOException if an I/O error occurs when writing to the file
+     */
+    private void bitSieve() throws IOException {
+        SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, preSievedPrimes);
+        PrimesWriter output = new PrimesWriter(file);
+        if (lL <= 2 && uL >= 2) {
+            output.write(2);
+        }
+        while (sieve.next()) {
+            long[] words = sieve.words();
+            long low = sieve.low();
+            for (int w = 0, n = (sieve.bits() + 63) >>> 6; w < n; ++w) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    output.write((low + 2L * ((w << 6) + Long.numberOfTrailingZeros(word))));
+                }
+            }
+        }
+        output.close();
+    }
+
+    /**
+     * Counts the primes in the range with the segmented, bit-packed Sieve of Eratosthenes.
+     *
+     * <p>Every block is sieved like in {@link #bitSieve()}, then its words are summed up with Long.bitCount,
+     * 64 odd numbers at a time, instead of being scanned prime by prime.
+     *
+     * <p>Time Complexity: O(n log log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_WORDS + sqrt(uL)), independent of the width and the offset of the range.
+     *
+     * <p>Limitations:
+     * - The square root of the upper limit (uL) must fit in an integer data type.
+     */
+    private void countSieve() {
+        SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, preSievedPrimes);
+        long total = lL <= 2 && uL >= 2 ? 1 : 0;
+        while (sieve.next()) {
+            long[] words = sieve.words();
+            for (int w = 0, n = (sieve.bits() + 63) >>> 6; w < n; ++w) {
+                total += Long.bitCount(words[w]);
+            }
+        }
+        count = total;
+    }
+
+    /**
+     * Returns the number of primes in the range, once run() has counted them.
+     *
+     * @return The number of primes.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the name of the file to which the prime numbers are written.
+     *
+     * @return The name of the file.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets file.
+     *
+     * @return the file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Initiates the generation of prime numbers, or only counts them if there is no file.
+     *
+     * @throws RuntimeException If there is an error writing to the file.
+     */
+    public void run() {
+        if (file == null) {
+            countSieve();
+            return;
+        }
+        try {
+            bitSieve();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Please submit your issue at https://github.com/Water-Buckets/findPrimes-Java/issues");
+            throw new RuntimeException(e);
+        }
+    }
+}
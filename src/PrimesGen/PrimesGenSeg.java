@@ -1,13 +1,11 @@
 package PrimesGen;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * This class extends the primesGen class and generates prime numbers in a given range using segmented sieve algorithms.
- * It supports both the Eratosthenes and Sundaram sieve algorithms.
+ * It supports the Eratosthenes, Sundaram, bit-packed Eratosthenes and mod-30 wheel Eratosthenes sieve algorithms.
  */
 public class PrimesGenSeg extends PrimesGen {
     /**
@@ -18,7 +16,7 @@ public class PrimesGenSeg extends PrimesGen {
     /**
      * List of pre-sieved primes
      */
-    private final List<Integer> preSievedPrimes;
+    private final IntList preSievedPrimes;
 
     /**
      * Constructor for primesGenSeg class.
@@ -33,7 +31,7 @@ public class PrimesGenSeg extends PrimesGen {
      *                                  Or lL is bogger than uL.
      * @throws RuntimeException         If it was unable to create new file.
      */
-    public PrimesGenSeg(int lL, int uL, List<Integer> preSievedPrimes, byte method, String fileName) throws IOException {
+    public PrimesGenSeg(int lL, int uL, IntList preSievedPrimes, byte method, String fileName) throws IOException {
         super(uL, method, fileName);
         if (lL >= uL) {
             throw new IllegalArgumentException("lL should be smaller than uL.");
@@ -52,7 +50,7 @@ public class PrimesGenSeg extends PrimesGen {
      * @throws IllegalArgumentException If an invalid method is specified.
      * @throws RuntimeException         If it was unable to create new file.
      */
-    public PrimesGenSeg(int lL, int uL, List<Integer> preSievedPrimes, byte method, File file) {
+    public PrimesGenSeg(int lL, int uL, IntList preSievedPrimes, byte method, File file) {
         super(uL, method, file);
         if (lL >= uL) {
             throw new IllegalArgumentException("lL should be smaller than uL.");
@@ -66,36 +64,50 @@ public class PrimesGenSeg extends PrimesGen {
      * <p>This method generates all prime numbers between the given lower limit (lL) and upper limit (uL) and writes them into a file.
      * It works by using a pre-sieved list of primes to mark off multiples within the range [lL, uL]. This version of the sieve is useful
      * for generating primes in a specific interval, especially when the upper bound (uL) is large.
+     * The range is sieved in blocks of SEGMENT_SIZE numbers that fit in the cache, reusing one buffer and keeping the next
+     * multiple of each pre-sieved prime between blocks.
      *
      * <p>Time Complexity: O(n log log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
      *
-     * <p>Space Complexity: O(n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * <p>Space Complexity: O(SEGMENT_SIZE + sqrt(uL)), independent of the width of the range.
      *
      * <p>Algorithm Characteristics:
      * - Uses the mathematical property of prime numbers and their multiples.
-     * - Uses a boolean array (isPrime) to keep track of prime numbers within the range.
+     * - Uses a boolean array (isPrime) to keep track of prime numbers within the current block.
      *
      * <p>Limitations:
      * - The upper limit (uL) and lower limit (lL) of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold a boolean array of size 'uL - lL + 1'.
      * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
      * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
      *
      * @throws IOException if an I/O error occurs when writing to the file
      */
     private void eratosthenesSieve() throws IOException {
-        boolean[] isPrime = new boolean[uL - lL + 1];
-        Arrays.fill(isPrime, true);
-        for (var prime : preSievedPrimes) {
-            int i = Math.max(prime * prime, (lL + prime - 1) / prime * prime);
-            for (int j = i; j <= uL; j += prime) {
-                isPrime[j - lL] = false;
-            }
+        int[] basePrimes = preSievedPrimes.toArray();
+        long[] next = new long[basePrimes.length];
+        for (int k = 0; k < basePrimes.length; ++k) {
+            int prime = basePrimes[k];
+            next[k] = Math.max((long) prime * prime, (lL + (long) prime - 1) / prime * prime);
+        }
+        boolean[] isPrime = new boolean[(int) Math.min(SEGMENT_SIZE, (long) uL - lL + 1)];
+        PrimesWriter output = openOutput();
+        if (lL <= 2 && uL >= 2) {
+            output.write(2);
         }
-        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
-        for (int i = (lL % 2 != 0 ? lL : lL + 1); i <= uL; i += 2) {
-            if (isPrime[i - lL]) {
-                output.write(i + " ");
+        for (long low = lL; low <= uL; low += isPrime.length) {
+            long high = Math.min(low + isPrime.length - 1, uL);
+            Arrays.fill(isPrime, true);
+            for (int k = 0; k < basePrimes.length; ++k) {
+                long j = next[k];
+                for (; j <= high; j += basePrimes[k]) {
+                    isPrime[(int) (j - low)] = false;
+                }
+                next[k] = j;
+            }
+            for (long i = (low % 2 != 0 ? low : low + 1); i <= high; i += 2) {
+                if (isPrime[(int) (i - low)]) {
+                    output.write(i);
+                }
             }
         }
         output.close();
@@ -108,37 +120,131 @@ public class PrimesGenSeg extends PrimesGen {
      * The Sieve of Sundaram works by eliminating certain numbers of the form i + j + 2ij where 1 <= i <= j from the list
      * of natural numbers 1, 2, ..., n. The remaining numbers are doubled and incremented by one, giving all
      * the odd prime numbers (and 2) below 2n + 2. This segmented version is useful for generating primes in a specific interval.
+     * Only the numbers k with 2k + 1 in [lL, uL] are sieved, block by block: for each i the values i + j + 2ij form the
+     * progression 2i(i + 1), step 2i + 1, so the first value inside the window is computed directly and kept between blocks.
      *
-     * <p>Time Complexity: O(n log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * <p>Time Complexity: O(n log n + sqrt(uL)), where n is the difference between the upper limit and lower limit of numbers to check for primality.
      *
-     * <p>Space Complexity: O(n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * <p>Space Complexity: O(SEGMENT_SIZE + sqrt(uL)), independent of the width of the range.
      *
      * <p>Algorithm Characteristics:
      * - Uses the mathematical property of prime numbers.
-     * - Uses a boolean array (isPrime) to keep track of prime numbers within the range.
+     * - Uses a boolean array (isPrime) to keep track of prime numbers within the current block.
      *
      * <p>Limitations:
      * - The upper limit (uL) and lower limit (lL) of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold a boolean array of size 'uL - lL + 1'.
      * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
      *
      * @throws IOException if an I/O error occurs when writing to the file
      */
     private void sundaramSieve() throws IOException {
-        final int nNew = (uL - 1) / 2;
-        boolean[] isPrime = new boolean[nNew + 1];
-        Arrays.fill(isPrime, true);
+        long kLow = Math.max(lL / 2, 1);
+        long kHigh = (uL - 1) / 2;
+        PrimesWriter output = openOutput();
+        if (lL <= 2 && uL >= 2) {
+            output.write(2);
+        }
+        if (kLow <= kHigh) {
+            int h = (int) ((Math.sqrt(1 + 2.0 * kHigh) - 1) / 2) + 1;
+            long[] next = new long[h + 1];
+            for (int i = 1; i <= h; ++i) {
+                long step = 2L * i + 1;
+                long start = 2L * i * (i + 1);
+                next[i] = start >= kLow ? start : start + (kLow - start + step - 1) / step * step;
+            }
+            boolean[] isPrime = new boolean[(int) Math.min(SEGMENT_SIZE, kHigh - kLow + 1)];
+            for (long low = kLow; low <= kHigh; low += isPrime.length) {
+                long high = Math.min(low + isPrime.length - 1, kHigh);
+                Arrays.fill(isPrime, true);
+                for (int i = 1; i <= h; ++i) {
+                    long j = next[i];
+                    for (long step = 2L * i + 1; j <= high; j += step) {
+                        isPrime[(int) (j - low)] = false;
+                    }
+                    next[i] = j;
+                }
+                for (long k = low; k <= high; ++k) {
+                    if (isPrime[(int) (k - low)]) {
+                        output.write(2 * k + 1);
+                    }
+                }
+            }
+        }
+        output.close();
+    }
 
+    /**
+     * Implements the segmented version of the bit-packed, odds-only Sieve of Eratosthenes
+     * for finding all prime numbers within a given range.
+     *
+     * <p>This method generates all prime numbers between the given lower limit (lL) and upper limit (uL) and writes them into a file.
+     * It works like {@link #eratosthenesSieve()}, but only the odd numbers of the range are stored, one bit each, in a long array.
+     * The range is sieved block by block by a {@link SegmentedBitSieve}.
+     *
+     * <p>Time Complexity: O(n log log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_WORDS + sqrt(uL)), independent of the width of the range.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) and lower limit (lL) of numbers to check for primality must fit in an integer data type.
+     * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
+     * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
+     *
+     * @throws IOException if an I/O error occurs when writing to the file
+     */
+    private void bitSieve() throws IOException {
+        SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, preSievedPrimes.toArray());
+        PrimesWriter output = openOutput();
+        if (lL <= 2 && uL >= 2) {
+            output.write(2);
+        }
+        while (sieve.next()) {
+            long[] words = sieve.words();
+            long low = sieve.low();
+            for (int w = 0, n = (sieve.bits() + 63) >>> 6; w < n; ++w) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    output.write((low + 2L * ((w << 6) + Long.numberOfTrailingZeros(word))));
+                }
+            }
+        }
+        output.close();
+    }
 
-        for (int i = 1; i <= nNew; ++i) {
-            for (int j = i; (i + j + 2 * i * j) <= nNew; ++j) {
-                isPrime[i + j + 2 * i * j] = false;
+    /**
+     * Implements the segmented version of the mod-30 wheel Sieve of Eratosthenes
+     * for finding all prime numbers within a given range.
+     *
+     * <p>This method generates all prime numbers between the given lower limit (lL) and upper limit (uL) and writes them into a file.
+     * The range is sieved block by block by a {@link WheelSieve}. Instead of starting every block from all-true,
+     * each block is initialised by copying a precomputed pattern in which the multiples of 2, 3, 5, 7, 11 and 13 are already removed,
+     * and the other pre-sieved primes cross off only their multiples on the 8 spokes of the mod-30 wheel.
+     *
+     * <p>Time Complexity: O(n log log n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_BYTES + sqrt(uL)), independent of the width of the range.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) and lower limit (lL) of numbers to check for primality must fit in an integer data type.
+     * - The algorithm writes the result to a file, so it requires file write permissions and enough disk space.
+     * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
+     *
+     * @throws IOException if an I/O error occurs when writing to the file
+     */
+    private void wheelSieve() throws IOException {
+        WheelSieve sieve = new WheelSieve(lL, uL, preSievedPrimes.toArray());
+        PrimesWriter output = openOutput();
+        for (int p : WheelSieve.WHEEL_PRIMES) {
+            if (lL <= p && p <= uL) {
+                output.write(p);
             }
         }
-        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8));
-        for (int i = Math.max(lL / 2, 1); i <= nNew; ++i) {
-            if (isPrime[i]) {
-                output.write((2 * i + 1) + " ");
+        while (sieve.next()) {
+            byte[] bytes = sieve.bytes();
+            long low = sieve.low();
+            for (int i = 0, n = sieve.length(); i < n; ++i) {
+                for (int bits = bytes[i] & 0xFF; bits != 0; bits &= bits - 1) {
+                    output.write(low + 30L * i + WheelSieve.RESIDUES[Integer.numberOfTrailingZeros(bits)]);
+                }
             }
         }
         output.close();
@@ -156,6 +262,8 @@ public class PrimesGenSeg extends PrimesGen {
                 case 0, 2, 4 -> throw new IllegalArgumentException("Invalid method.");
                 case 1 -> eratosthenesSieve();
                 case 3 -> sundaramSieve();
+                case 5 -> bitSieve();
+                case 6 -> wheelSieve();
             }
         } catch (IOException e) {
             e.printStackTrace();
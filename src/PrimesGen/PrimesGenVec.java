@@ -1,23 +1,22 @@
 package PrimesGen;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * primesGenVec is a class that extends primesGen. It is used to generate prime numbers up to a given upper limit (uL) using specified methods.
- * The generated prime numbers are stored in a List.
- * The class supports five methods for generating prime numbers: Trial Division, the Sieve of Eratosthenes, the Sieve of Sundaram, Euler's Sieve and Incremental Sieve.
- * The method to be used is specified by a byte value (0-4) passed to the constructor.
- * The class also includes a method to retrieve the List of generated prime numbers and a method to write the prime numbers to a file.
+ * The generated prime numbers are stored in an IntList, a growable list of primitive ints.
+ * The class supports seven methods for generating prime numbers: Trial Division, the Sieve of Eratosthenes, Euler's Sieve, the Sieve of Sundaram,
+ * Incremental Sieve, the bit-packed Sieve of Eratosthenes and the mod-30 wheel Sieve of Eratosthenes.
+ * The method to be used is specified by a byte value (0-6) passed to the constructor.
+ * The class also includes a method to retrieve the IntList of generated prime numbers and a method to write the prime numbers to a file.
  */
 public class PrimesGenVec extends PrimesGen {
     /**
-     * A List of generated prime numbers.
+     * A list of generated prime numbers.
      */
-    List<Integer> primes = new ArrayList<>();
+    IntList primes = new IntList();
 
     /**
      * The constructor for the primesGenVec class.
@@ -45,6 +44,17 @@ public class PrimesGenVec extends PrimesGen {
         super(uL, method, file);
     }
 
+    /**
+     * The constructor for the primesGenVec class without a file, the prime numbers are only kept in memory.
+     *
+     * @param uL     The upper limit for prime number generation.
+     * @param method The method to be used for prime number generation.
+     * @throws IllegalArgumentException If an invalid method is specified.
+     */
+    public PrimesGenVec(int uL, byte method) {
+        super(uL, method);
+    }
+
     /**
      * Implements the Trial Division algorithm for finding all prime numbers up to a given limit.
      *
@@ -72,7 +82,8 @@ public class PrimesGenVec extends PrimesGen {
         }
         for (int i = 3; i <= uL; i += 2) {
             boolean isPrime = false;
-            for (var p : primes) {
+            for (int k = 0; k < primes.size(); ++k) {
+                int p = primes.get(k);
                 if (p * p > i) {
                     break;
                 }
@@ -116,8 +127,8 @@ public class PrimesGenVec extends PrimesGen {
         for (int i = 3; i <= uL; i += 2) {
             if (isPrime[i]) {
                 primes.add(i);
-                for (int j = i * i; j <= uL; j += 2 * i) {
-                    isPrime[j] = false;
+                for (long j = (long) i * i; j <= uL; j += 2L * i) {
+                    isPrime[(int) j] = false;
                 }
             }
         }
@@ -205,53 +216,104 @@ public class PrimesGenVec extends PrimesGen {
      * Implements the Incremental Sieve algorithm for finding all prime numbers up to a given limit.
      *
      * <p>This method generates all prime numbers up to the given upper limit (uL) and stores them in a list.
-     * It works by iterating over each number up to the upper limit and checking if it is divisible by any of the previously found primes.
-     * If it is not divisible by any of the primes, it is a prime number and is added to the list of primes.
-     * It also maintains a list of multiples of primes (mp), which is used to skip the multiples of primes when checking for primality.
+     * The primes are taken one at a time from an unbounded {@link IncrementalSieve}, which keeps the next odd multiple
+     * of each prime up to the square root of the current candidate in a min-heap and stops as soon as a prime exceeds uL.
      *
-     * <p>Time Complexity: O(n^1.5), where n is the upper limit of numbers to check for primality. This is because for each number up to n,
-     * it checks divisibility by numbers up to sqrt(n).
+     * <p>Time Complexity: O(n log log n) heap updates of O(log pi(sqrt(n))) each, where n is the upper limit of numbers to check for primality.
      *
-     * <p>Space Complexity: O(n), where n is the upper limit of numbers to check for primality.
+     * <p>Space Complexity: O(pi(sqrt(n))) for the sieve, where n is the upper limit of numbers to check for primality.
      *
      * <p>Algorithm Characteristics:
-     * - Uses the mathematical property of prime numbers.
-     * - Uses a list to keep track of prime numbers and their multiples.
+     * - Uses the mathematical property of prime numbers and their multiples.
+     * - Uses a min-heap of primitive longs to keep track of the next multiple of each prime.
      *
      * <p>Limitations:
      * - The upper limit (uL) of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold two lists of size 'uL'.
+     * - This method requires enough memory to hold a list of all primes up to 'uL'.
      */
     private void incrementalSieve() {
-        List<Integer> mp = new ArrayList<>();
-        for (int i = 2; i < uL + 1; ++i) {
-            boolean flag = true;
-            int limit = (int) Math.sqrt(i);
-            for (int k = 0; k < primes.size(); ++k) {
-                if (primes.get(k) > limit) {
-                    break;
-                }
-                while (mp.get(k) < i) {
-                    mp.set(k, mp.get(k) + primes.get(k));
-                }
-                if (mp.get(k) == i) {
-                    flag = false;
-                    break;
-                }
+        IncrementalSieve sieve = new IncrementalSieve();
+        for (long p = sieve.nextLong(); p <= uL; p = sieve.nextLong()) {
+            primes.add((int) p);
+        }
+    }
+
+    /**
+     * Implements the bit-packed, odds-only Sieve of Eratosthenes for finding all prime numbers up to a given limit.
+     *
+     * <p>This method generates all prime numbers up to the given upper limit (uL) and stores them in a list.
+     * It works like {@link #eratosthenesSieve()}, but only odd numbers are stored, one bit each, in a long array.
+     * The result is scanned a word at a time, jumping straight to the next prime with Long.numberOfTrailingZeros.
+     *
+     * <p>Time Complexity: O(n log(log n)), where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(n / 16) bytes for the sieve, where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Algorithm Characteristics:
+     * - Uses the mathematical property of prime numbers and their multiples.
+     * - Uses a long array (BitSieve) with one bit per odd number to keep track of prime numbers.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) of numbers to check for primality must fit in an integer data type.
+     * - This method requires enough memory to hold a list of all primes up to 'uL'.
+     */
+    private void bitSieve() {
+        long[] words = BitSieve.sieve(uL);
+        if (uL >= 2) {
+            primes.add(2);
+        }
+        for (int w = 0; w < words.length; ++w) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                primes.add(2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1);
             }
-            if (flag) {
-                primes.add(i);
-                mp.add(i * i);
+        }
+    }
+
+    /**
+     * Implements the mod-30 wheel Sieve of Eratosthenes for finding all prime numbers up to a given limit.
+     *
+     * <p>This method generates all prime numbers up to the given upper limit (uL) and stores them in a list.
+     * The range is sieved block by block by a {@link WheelSieve}: only the numbers coprime to 30 are stored,
+     * one bit each, every block starts from a copy of a pattern with the multiples of 7, 11 and 13 already removed,
+     * and the other primes cross off only their multiples on the spokes of the wheel.
+     *
+     * <p>Time Complexity: O(n log(log n)), where n is the upper limit of numbers to check for primality.
+     *
+     * <p>Space Complexity: O(SEGMENT_BYTES + sqrt(n)) for the sieve, independent of the upper limit.
+     *
+     * <p>Algorithm Characteristics:
+     * - Uses the mathematical property of prime numbers and their multiples.
+     * - Uses a byte array (WheelSieve) with one bit per number coprime to 30 to keep track of prime numbers.
+     *
+     * <p>Limitations:
+     * - The upper limit (uL) of numbers to check for primality must fit in an integer data type.
+     * - This method requires enough memory to hold a list of all primes up to 'uL'.
+     */
+    private void wheelSieve() {
+        WheelSieve sieve = new WheelSieve(1, uL, BitSieve.basePrimes(uL));
+        for (int p : WheelSieve.WHEEL_PRIMES) {
+            if (p <= uL) {
+                primes.add(p);
+            }
+        }
+        while (sieve.next()) {
+            byte[] bytes = sieve.bytes();
+            int low = (int) sieve.low();
+            for (int i = 0, n = sieve.length(); i < n; ++i) {
+                for (int bits = bytes[i] & 0xFF; bits != 0; bits &= bits - 1) {
+                    primes.add(low + 30 * i + WheelSieve.RESIDUES[Integer.numberOfTrailingZeros(bits)]);
+                }
             }
         }
     }
 
     /**
-     * Returns the List of generated prime numbers.
+     * Returns the list of generated prime numbers.
+     * The primes are stored as primitive ints, so they can be read with {@link IntList#get(int)} without boxing.
      *
-     * @return The List of prime numbers.
+     * @return The list of prime numbers.
      */
-    public List<Integer> getPrimes() {
+    public IntList getPrimes() {
         return primes;
     }
 
@@ -265,22 +327,53 @@ public class PrimesGenVec extends PrimesGen {
             case 2 -> eulerSieve();
             case 3 -> sundaramSieve();
             case 4 -> incrementalSieve();
+            case 5 -> bitSieve();
+            case 6 -> wheelSieve();
+        }
+        if (stats != null) {
+            primes.forEach(stats);
         }
-        if (!file.delete()) {
+        if (file != null && !file.delete()) {
             throw new RuntimeException("Failed to delete file: " + file);
         }
     }
 
     /**
-     * Writes the generated prime numbers to a BufferedWriter.
+     * Writes the generated prime numbers to a PrimesWriter.
      *
-     * @param output the BufferedWriter to be output.
+     * @param output the PrimesWriter to be output.
      * @throws IOException the io exception
      */
-    public void output(BufferedWriter output) throws IOException {
-        for (Integer p : primes) {
-            output.write(p + " ");
+    public void output(PrimesWriter output) throws IOException {
+        output.write(primes);
+    }
+
+    /**
+     * Returns the number of bytes {@link #output(FileChannel, long)} writes, the digits of every prime plus a space.
+     *
+     * @return The length of the output in bytes.
+     */
+    public long outputLength() {
+        long length = 0;
+        for (int k = 0; k < primes.size(); ++k) {
+            length += PrimesWriter.digits(primes.get(k)) + 1;
         }
+        return length;
+    }
+
+    /**
+     * Writes the generated prime numbers to a FileChannel, starting at the given position.
+     * Positional writes do not move the position of the channel, so several threads may write
+     * disjoint regions of the same file at the same time.
+     *
+     * @param channel  the FileChannel to be output.
+     * @param position the file position of the first byte, see {@link #outputLength()}.
+     * @throws IOException the io exception
+     */
+    public void output(FileChannel channel, long position) throws IOException {
+        PrimesWriter output = new PrimesWriter(channel, position);
+        output(output);
+        output.flush();
     }
 
     /**
@@ -289,7 +382,7 @@ public class PrimesGenVec extends PrimesGen {
      * @throws IOException If there is an error writing to the file.
      */
     public void outputToFile() throws IOException {
-        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName, false), StandardCharsets.UTF_8));
+        PrimesWriter output = new PrimesWriter(new File(fileName));
         output(output);
         output.close();
     }
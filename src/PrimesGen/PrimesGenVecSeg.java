@@ -2,20 +2,19 @@ package PrimesGen;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 /**
  * This class extends the primesGenVec class and generates prime numbers in a given range using various methods.
- * The methods include trial division, Eratosthenes sieve, Euler sieve, Sundaram sieve, and incremental sieve.
+ * The methods include trial division, Eratosthenes sieve, Euler sieve, Sundaram sieve, incremental sieve, bit-packed Eratosthenes sieve
+ * and mod-30 wheel Eratosthenes sieve.
  * The class also allows for pre-sieved primes to be used in the generation process.
  */
 public class PrimesGenVecSeg extends PrimesGenVec {
     /**
      * A list of pre-sieved primes.
      */
-    private final List<Integer> preSievedPrimes;
+    private final IntList preSievedPrimes;
     /**
      * The lower limit of the range.
      */
@@ -34,7 +33,7 @@ public class PrimesGenVecSeg extends PrimesGenVec {
      *                                  Or lL is bogger than uL.
      * @throws RuntimeException         If it was unable to create new file.
      */
-    public PrimesGenVecSeg(int lL, int uL, List<Integer> preSievedPrimes, byte method, String fileName) throws IOException {
+    public PrimesGenVecSeg(int lL, int uL, IntList preSievedPrimes, byte method, String fileName) throws IOException {
         super(uL, method, fileName);
         if (lL >= uL) {
             throw new IllegalArgumentException("l should be smaller than u.");
@@ -54,7 +53,7 @@ public class PrimesGenVecSeg extends PrimesGenVec {
      *                                  Or lL is bogger than uL.
      * @throws RuntimeException         If it was unable to create new file.
      */
-    public PrimesGenVecSeg(int lL, int uL, List<Integer> preSievedPrimes, byte method, File file) {
+    public PrimesGenVecSeg(int lL, int uL, IntList preSievedPrimes, byte method, File file) {
         super(uL, method, file);
         if (lL >= uL) {
             throw new IllegalArgumentException("l should be smaller than u.");
@@ -62,6 +61,24 @@ public class PrimesGenVecSeg extends PrimesGenVec {
         this.preSievedPrimes = preSievedPrimes;
     }
 
+    /**
+     * Constructor for the primesGenVecSeg class without a file, the primes are only kept in memory.
+     *
+     * @param lL              The lower limit of the range.
+     * @param uL              The upper limit of the range.
+     * @param preSievedPrimes The list of pre-sieved primes.
+     * @param method          The method to be used for prime generation.
+     * @throws IllegalArgumentException If an invalid method is specified.
+     *                                  Or lL is bogger than uL.
+     */
+    public PrimesGenVecSeg(int lL, int uL, IntList preSievedPrimes, byte method) {
+        super(uL, method);
+        if (lL >= uL) {
+            throw new IllegalArgumentException("l should be smaller than u.");
+        } else this.lL = lL;
+        this.preSievedPrimes = preSievedPrimes;
+    }
+
     /**
      * Implements the Trial Division algorithm for finding all prime numbers within a given range.
      *
@@ -96,9 +113,10 @@ public class PrimesGenVecSeg extends PrimesGenVec {
         if (lL % 2 == 0) {
             ++lL;
         }
+        int[] basePrimes = preSievedPrimes.toArray();
         for (int i = lL; i <= uL; i += 2) {
             boolean isPrime = true;
-            for (int p : preSievedPrimes) {
+            for (int p : basePrimes) {
                 if (p * p > i) {
                     break;
                 }
@@ -122,37 +140,50 @@ public class PrimesGenVecSeg extends PrimesGenVec {
      * It works by using a pre-sieved list of primes to mark off multiples within the range [lL, uL].
      * This version of the sieve is useful
      * for generating primes in a specific interval, especially when the upper bound (uL) is large.
+     * The range is sieved in blocks of SEGMENT_SIZE numbers that fit in the cache,
+     * reusing one buffer and keeping the next multiple of each pre-sieved prime between blocks.
+     * Each block is initialised from the pre-sieve patterns of the primes up to 31 and scanned for survivors by a
+     * {@link SieveKernel}, on wide vector lanes when the Vector API is enabled,
+     * so only the bigger pre-sieved primes cross off their multiples one by one.
      *
      * <p>Time Complexity: O(n log log n),
      * where n is the difference between the upper limit and lower limit of numbers to check for primality.
      *
      * <p>Space Complexity:
-     * O(n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * O(SEGMENT_SIZE + sqrt(uL)) for the sieve, independent of the width of the range.
      *
      * <p>Algorithm Characteristics:
      * - Uses the mathematical property of prime numbers and their multiples.
-     * - Uses a boolean array (isPrime) to keep track of prime numbers within the range.
+     * - Uses a byte array (isPrime) to keep track of prime numbers within the current block.
      *
      * <p>Limitations:
      * -
      * The upper limit (uL) and lower limit (lL)
      * of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold a boolean array of size 'uL - lL + 1'.
      * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
      */
     private void eratosthenesSieve() {
-        boolean[] isPrime = new boolean[uL - lL + 1];
-        Arrays.fill(isPrime, true);
-        for (var prime : preSievedPrimes) {
-            int firstMultiple = Math.max(prime * prime, (lL + prime - 1) / prime * prime);
-            for (int j = firstMultiple; j <= uL; j += prime) {
-                isPrime[j - lL] = false;
-            }
+        SieveKernel kernel = SieveKernel.get();
+        int[] basePrimes = preSievedPrimes.stream().filter(p -> p > SieveKernel.LARGEST_PATTERN_PRIME).toArray();
+        long[] next = new long[basePrimes.length];
+        for (int k = 0; k < basePrimes.length; ++k) {
+            int prime = basePrimes[k];
+            next[k] = Math.max((long) prime * prime, (lL + (long) prime - 1) / prime * prime);
         }
-        for (int i = (lL % 2 != 0 ? lL : lL + 1); i <= uL; i += 2) {
-            if (isPrime[i - lL]) {
-                primes.add(i);
+        byte[] isPrime = new byte[(int) Math.min(SEGMENT_SIZE, (long) uL - lL + 1)];
+        int[] survivors = new int[isPrime.length];
+        for (long low = lL; low <= uL; low += isPrime.length) {
+            long high = Math.min(low + isPrime.length - 1, uL);
+            int length = (int) (high - low + 1);
+            kernel.fill(isPrime, low, length);
+            for (int k = 0; k < basePrimes.length; ++k) {
+                long j = next[k];
+                for (; j <= high; j += basePrimes[k]) {
+                    isPrime[(int) (j - low)] = 0;
+                }
+                next[k] = j;
             }
+            primes.addAll(survivors, 0, kernel.collect(isPrime, length, (int) low, survivors));
         }
     }
 
@@ -187,7 +218,7 @@ public class PrimesGenVecSeg extends PrimesGenVec {
     private void eulerSieve() {
         boolean[] isPrime = new boolean[uL - lL + 1];
         Arrays.fill(isPrime, true);
-        for (int p : preSievedPrimes) {
+        for (int p : preSievedPrimes.toArray()) {
             for (int i = Math.max(p * p, (lL + p - 1) / p * p); i <= uL; i += p) {
                 isPrime[i - lL] = false;
             }
@@ -215,37 +246,55 @@ public class PrimesGenVecSeg extends PrimesGenVec {
      * The Sieve of Sundaram works by eliminating certain numbers of the form i + j + 2ij where 1 <= i <= j from the list
      * of natural numbers 1, 2, ..., n. The remaining numbers are doubled and incremented by one, giving all
      * the odd prime numbers (and 2) below 2n + 2.
+     * Only the numbers k with 2k + 1 in [lL, uL] are sieved, block by block: for each i the values i + j + 2ij form the
+     * progression 2i(i + 1), step 2i + 1, so the first value inside the window is computed directly and kept between blocks.
      *
-     * <p>Time Complexity: O(n log n),
+     * <p>Time Complexity: O(n log n + sqrt(uL)),
      * where n is the difference between the upper limit and lower limit of numbers to check for primality.
      *
      * <p>Space Complexity:
-     * O(n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * O(SEGMENT_SIZE + sqrt(uL)) for the sieve, independent of the width of the range.
      *
      * <p>Algorithm Characteristics:
      * - Uses the mathematical property of prime numbers.
-     * - Uses a boolean array (isPrime) to keep track of prime numbers.
+     * - Uses a boolean array (isPrime) to keep track of prime numbers within the current block.
      *
      * <p>Limitations:
      * -
      * The upper limit (uL) and lower limit (lL)
      * of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold a boolean array of size 'uL - lL + 1'.
      */
     private void sundaramSieve() {
-        final int nNew = (uL - 1) / 2;
-        boolean[] isPrime = new boolean[nNew + 1];
-        Arrays.fill(isPrime, true);
-
-
-        for (int i = 1; i <= nNew; ++i) {
-            for (int j = i; (i + j + 2 * i * j) <= nNew; ++j) {
-                isPrime[i + j + 2 * i * j] = false;
-            }
+        long kLow = Math.max(lL / 2, 1);
+        long kHigh = (uL - 1) / 2;
+        if (lL <= 2 && uL >= 2) {
+            primes.add(2);
+        }
+        if (kLow > kHigh) {
+            return;
         }
-        for (int i = Math.max(lL / 2, 1); i <= nNew; ++i) {
-            if (isPrime[i]) {
-                primes.add(2 * i + 1);
+        int h = (int) ((Math.sqrt(1 + 2.0 * kHigh) - 1) / 2) + 1;
+        long[] next = new long[h + 1];
+        for (int i = 1; i <= h; ++i) {
+            long step = 2L * i + 1;
+            long start = 2L * i * (i + 1);
+            next[i] = start >= kLow ? start : start + (kLow - start + step - 1) / step * step;
+        }
+        boolean[] isPrime = new boolean[(int) Math.min(SEGMENT_SIZE, kHigh - kLow + 1)];
+        for (long low = kLow; low <= kHigh; low += isPrime.length) {
+            long high = Math.min(low + isPrime.length - 1, kHigh);
+            Arrays.fill(isPrime, true);
+            for (int i = 1; i <= h; ++i) {
+                long j = next[i];
+                for (long step = 2L * i + 1; j <= high; j += step) {
+                    isPrime[(int) (j - low)] = false;
+                }
+                next[i] = j;
+            }
+            for (long k = low; k <= high; ++k) {
+                if (isPrime[(int) (k - low)]) {
+                    primes.add((int) (2 * k + 1));
+                }
             }
         }
     }
@@ -255,59 +304,109 @@ public class PrimesGenVecSeg extends PrimesGenVec {
      *
      * <p>This method generates all prime numbers between the given lower limit
      * (lL) and upper limit (uL) and stores them in a list.
-     * It works by using a pre-sieved list of primes
-     * and iteratively checking for multiples of these primes within the range [lL,
-     * uL].
-     * If a number is not a multiple of any of the pre-sieved primes, it is considered a prime number.
+     * The primes are taken one at a time from an unbounded {@link IncrementalSieve} started at lL,
+     * which seeds its heap with the next multiple not below lL of every prime up to the square root of lL
+     * and stops as soon as a prime exceeds uL.
      *
-     * <p>Time Complexity: O(n^1.5),
+     * <p>Time Complexity: O(n log log n + sqrt(uL)) heap updates of O(log pi(sqrt(uL))) each,
      * where n is the difference between the upper limit and lower limit of numbers to check for primality.
      *
      * <p>Space Complexity:
-     * O(n), where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     * O(pi(sqrt(uL))) for the sieve, independent of the width of the range.
      *
      * <p>Algorithm Characteristics:
      * - Uses the mathematical property of prime numbers and their multiples.
-     * - Uses a list (primes) to keep track of prime numbers within the range.
+     * - Uses a min-heap of primitive longs to keep track of the next multiple of each prime.
      *
      * <p>Limitations:
      * -
      * The upper limit (uL) and lower limit (lL)
      * of numbers to check for primality must fit in an integer data type.
-     * - This method requires enough memory to hold a list of size 'uL - lL + 1'.
-     * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
+     * - This method requires enough memory to hold a list of all primes in the range.
      */
     private void incrementalSieve() {
-        primes.addAll(preSievedPrimes);
-        List<Integer> mp = new ArrayList<>(primes.size());
-        mp.addAll(primes);
-
-        // Initialize the multiples of pre-sieved primes
-        for (int k = 0; k < primes.size(); ++k) {
-            mp.add(k, ((lL + primes.get(k) - 1) / primes.get(k)) * primes.get(k));
+        IncrementalSieve sieve = new IncrementalSieve(lL);
+        for (long p = sieve.nextLong(); p <= uL; p = sieve.nextLong()) {
+            primes.add((int) p);
         }
+    }
 
-        for (int i = lL; i <= uL; ++i) {
-            boolean isPrime = true;
-            int limit = (int) Math.sqrt(i);
-            for (int k = 0; k < primes.size(); ++k) {
-                if (primes.get(k) > limit) {
-                    break;
-                }
-                while (mp.get(k) < i) {
-                    mp.set(k, mp.get(k) + primes.get(k));
-                }
-                if (mp.get(k) == i) {
-                    isPrime = false;
-                    break;
+    /**
+     * Implements the segmented version of the bit-packed, odds-only Sieve of Eratosthenes
+     * for finding all prime numbers within a given range.
+     *
+     * <p>This method generates all prime numbers between the given lower limit
+     * (lL) and upper limit (uL) and stores them in a list.
+     * It works like {@link #eratosthenesSieve()},
+     * but only the odd numbers of the range are stored, one bit each, in a long array.
+     * The range is sieved block by block by a {@link SegmentedBitSieve}.
+     *
+     * <p>Time Complexity: O(n log log n),
+     * where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity:
+     * O(SEGMENT_WORDS + sqrt(uL)) for the sieve, independent of the width of the range.
+     *
+     * <p>Limitations:
+     * -
+     * The upper limit (uL) and lower limit (lL)
+     * of numbers to check for primality must fit in an integer data type.
+     * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
+     */
+    private void bitSieve() {
+        SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, preSievedPrimes.toArray());
+        if (lL <= 2 && uL >= 2) {
+            primes.add(2);
+        }
+        while (sieve.next()) {
+            long[] words = sieve.words();
+            int low = (int) sieve.low();
+            for (int w = 0, n = (sieve.bits() + 63) >>> 6; w < n; ++w) {
+                for (long word = words[w]; word != 0; word &= word - 1) {
+                    primes.add(low + 2 * ((w << 6) + Long.numberOfTrailingZeros(word)));
                 }
             }
-            if (isPrime) {
-                primes.add(i);
-                mp.add(i * i);
+        }
+    }
+
+    /**
+     * Implements the segmented version of the mod-30 wheel Sieve of Eratosthenes
+     * for finding all prime numbers within a given range.
+     *
+     * <p>This method generates all prime numbers between the given lower limit
+     * (lL) and upper limit (uL) and stores them in a list.
+     * The range is sieved block by block by a {@link WheelSieve}. Instead of starting every block from all-true,
+     * each block is initialised by copying a precomputed pattern in which the multiples of 2, 3, 5, 7, 11 and 13 are already removed,
+     * and the other pre-sieved primes cross off only their multiples on the 8 spokes of the mod-30 wheel.
+     *
+     * <p>Time Complexity: O(n log log n),
+     * where n is the difference between the upper limit and lower limit of numbers to check for primality.
+     *
+     * <p>Space Complexity:
+     * O(SEGMENT_BYTES + sqrt(uL)) for the sieve, independent of the width of the range.
+     *
+     * <p>Limitations:
+     * -
+     * The upper limit (uL) and lower limit (lL)
+     * of numbers to check for primality must fit in an integer data type.
+     * - It requires a pre-sieved list of primes up to the square root of the upper limit (uL).
+     */
+    private void wheelSieve() {
+        WheelSieve sieve = new WheelSieve(lL, uL, preSievedPrimes.toArray());
+        for (int p : WheelSieve.WHEEL_PRIMES) {
+            if (lL <= p && p <= uL) {
+                primes.add(p);
+            }
+        }
+        while (sieve.next()) {
+            byte[] bytes = sieve.bytes();
+            int low = (int) sieve.low();
+            for (int i = 0, n = sieve.length(); i < n; ++i) {
+                for (int bits = bytes[i] & 0xFF; bits != 0; bits &= bits - 1) {
+                    primes.add(low + 30 * i + WheelSieve.RESIDUES[Integer.numberOfTrailingZeros(bits)]);
+                }
             }
         }
-        primes.removeAll(preSievedPrimes);
     }
 
     /**
@@ -320,8 +419,13 @@ public class PrimesGenVecSeg extends PrimesGenVec {
             case 2 -> eulerSieve();
             case 3 -> sundaramSieve();
             case 4 -> incrementalSieve();
+            case 5 -> bitSieve();
+            case 6 -> wheelSieve();
+        }
+        if (stats != null) {
+            primes.forEach(stats);
         }
-        if (!file.delete()) {
+        if (file != null && !file.delete()) {
             throw new RuntimeException("Failed to delete file: " + file);
         }
     }
@@ -0,0 +1,356 @@
+package PrimesGen;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PrimesIndex is an on-disk, memory-mapped index of all primes up to a limit.
+ * It answers isPrime, pi(x), nthPrime(k) and nextPrime(x) straight from the mapped file, without copying it to the heap.
+ * <p>
+ * File layout, all numbers little-endian:
+ * <pre>
+ * header   magic "PRMI" (int), version (int), limit (long), word count (long), sample count (long) - HEADER_SIZE bytes
+ * bitmap   the odds-only bitmap of {@link BitSieve}, bit i stands for 2i + 1 and is set if it is prime
+ * samples  for every group of SAMPLE_WORDS words, the number of set bits before the group (long)
+ * </pre>
+ * The rank samples add 1/8 to the size of the bitmap. pi(x) reads one sample and at most SAMPLE_WORDS words,
+ * nthPrime(k) binary searches the samples and then scans at most SAMPLE_WORDS words.
+ * <p>
+ * The file is mapped in chunks of at most 1 GiB, so the index may be larger than 2 GiB.
+ * A PrimesIndex is immutable once opened and may be shared between threads.
+ */
+public class PrimesIndex implements Closeable {
+    /**
+     * The magic number at the start of every index, "PRMI".
+     */
+    private static final int MAGIC = 0x50524D49;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * The number of bitmap words per rank sample.
+     */
+    private static final int SAMPLE_WORDS = 8;
+
+    /**
+     * The number of longs per mapped chunk, log2.
+     */
+    private static final int CHUNK_SHIFT = 27;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The limit of the index, the largest number it covers.
+     */
+    private final long limit;
+
+    /**
+     * The number of bitmap words.
+     */
+    private final long words;
+
+    /**
+     * The number of rank samples.
+     */
+    private final long samples;
+
+    /**
+     * The mapped chunks of the bitmap.
+     */
+    private final MappedByteBuffer[] bitmap;
+
+    /**
+     * The mapped chunks of the rank samples.
+     */
+    private final MappedByteBuffer[] sampleMap;
+
+    /**
+     * Opens and maps an index.
+     *
+     * @param file The index file.
+     * @throws IOException If an I/O error occurs or the file is not a prime index.
+     */
+    public PrimesIndex(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Not a prime index: " + file);
+                }
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a prime index: " + file);
+            }
+            this.limit = header.getLong();
+            this.words = header.getLong();
+            this.samples = header.getLong();
+            this.bitmap = map(HEADER_SIZE, words);
+            this.sampleMap = map(HEADER_SIZE + words * 8, samples);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Sieves all primes up to a limit and writes them as an index.
+     * The bitmap is produced block by block by a {@link SegmentedBitSieve}, so the memory needed stays flat.
+     *
+     * @param file       The index file to be written.
+     * @param limit      The limit of the index.
+     * @param basePrimes The primes up to the square root of the limit.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void write(File file, long limit, IntList basePrimes) throws IOException {
+        long words = (oddCount(limit) + 63) >>> 6;
+        long samples = (words + SAMPLE_WORDS - 1) / SAMPLE_WORDS;
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(limit).putLong(words).putLong(samples).flip();
+            writeFully(out, header, 0);
+
+            ByteBuffer bits = ByteBuffer.allocateDirect(SegmentedBitSieve.SEGMENT_WORDS * 8).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer ranks = ByteBuffer.allocateDirect(SegmentedBitSieve.SEGMENT_WORDS).order(ByteOrder.LITTLE_ENDIAN);
+            long bitsPosition = HEADER_SIZE;
+            long ranksPosition = HEADER_SIZE + words * 8;
+            long rank = 0;
+            SegmentedBitSieve sieve = new SegmentedBitSieve(1, Math.max(limit, 1), basePrimes.toArray());
+            while (sieve.next()) {
+                long[] block = sieve.words();
+                for (int w = 0, n = (sieve.bits() + 63) >>> 6; w < n; ++w) {
+                    if (w % SAMPLE_WORDS == 0) {
+                        ranks.putLong(rank);
+                    }
+                    bits.putLong(block[w]);
+                    rank += Long.bitCount(block[w]);
+                }
+                bitsPosition += writeFully(out, bits.flip(), bitsPosition);
+                ranksPosition += writeFully(out, ranks.flip(), ranksPosition);
+                bits.clear();
+                ranks.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of odd numbers in [1, limit].
+     *
+     * @param limit The limit.
+     * @return The number of odd numbers.
+     */
+    private static long oddCount(long limit) {
+        return limit < 1 ? 0 : limit / 2 + (limit & 1);
+    }
+
+    /**
+     * Writes a whole buffer at the given position.
+     *
+     * @param out      The channel.
+     * @param buffer   The buffer, ready to be read.
+     * @param position The file position.
+     * @return The number of bytes written.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static int writeFully(FileChannel out, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer, position + length - buffer.remaining());
+        }
+        return length;
+    }
+
+    /**
+     * Maps a region of longs in chunks of at most 2^CHUNK_SHIFT longs.
+     *
+     * @param position The file position of the first long.
+     * @param count    The number of longs.
+     * @return The mapped chunks.
+     * @throws IOException If an I/O error occurs.
+     */
+    private MappedByteBuffer[] map(long position, long count) throws IOException {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((count + (1L << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT)];
+        for (int c = 0; c < chunks.length; ++c) {
+            long first = (long) c << CHUNK_SHIFT;
+            long size = Math.min(1L << CHUNK_SHIFT, count - first) * 8;
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, position + first * 8, size);
+            chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    /**
+     * Reads a long from mapped chunks.
+     *
+     * @param chunks The mapped chunks.
+     * @param index  The index of the long.
+     * @return The long.
+     */
+    private static long get(MappedByteBuffer[] chunks, long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getLong((int) (index & ((1L << CHUNK_SHIFT) - 1)) << 3);
+    }
+
+    /**
+     * Returns the limit of the index.
+     *
+     * @return The largest number covered by the index.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Checks that a number is covered by the index.
+     *
+     * @param x The number.
+     * @throws IllegalArgumentException If x is beyond the limit.
+     */
+    private void checkLimit(long x) {
+        if (x > limit) {
+            throw new IllegalArgumentException(x + " is beyond the limit of the index: " + limit);
+        }
+    }
+
+    /**
+     * Returns whether a number is prime.
+     *
+     * @param x The number.
+     * @return true if x is prime.
+     * @throws IllegalArgumentException If x is beyond the limit.
+     */
+    public boolean isPrime(long x) {
+        checkLimit(x);
+        if (x < 3) {
+            return x == 2;
+        }
+        if ((x & 1) == 0) {
+            return false;
+        }
+        long i = x >>> 1;
+        return (get(bitmap, i >>> 6) & (1L << i)) != 0;
+    }
+
+    /**
+     * Returns pi(x), the number of primes not bigger than x.
+     *
+     * @param x The number.
+     * @return The number of primes up to x.
+     * @throws IllegalArgumentException If x is beyond the limit.
+     */
+    public long pi(long x) {
+        checkLimit(x);
+        if (x < 2) {
+            return 0;
+        }
+        long i = (x - 1) >>> 1;
+        long w = i >>> 6;
+        long group = w / SAMPLE_WORDS;
+        long count = 1 + get(sampleMap, group);
+        for (long v = group * SAMPLE_WORDS; v < w; ++v) {
+            count += Long.bitCount(get(bitmap, v));
+        }
+        return count + Long.bitCount(get(bitmap, w) & (-1L >>> (63 - (i & 63))));
+    }
+
+    /**
+     * Returns the total number of primes covered by the index.
+     *
+     * @return pi(limit).
+     */
+    public long count() {
+        return limit < 2 ? 0 : pi(limit);
+    }
+
+    /**
+     * Returns the k-th prime, the first prime being 2.
+     *
+     * @param k The 1-based rank of the prime.
+     * @return The k-th prime.
+     * @throws IllegalArgumentException If k is not positive or there are fewer than k primes up to the limit.
+     */
+    public long nthPrime(long k) {
+        if (k < 1 || k > count()) {
+            throw new IllegalArgumentException("There is no prime number " + k + " up to " + limit);
+        }
+        if (k == 1) {
+            return 2;
+        }
+        long target = k - 1;
+        long lo = 0;
+        long hi = samples - 1;
+        while (lo < hi) {
+            long mid = (lo + hi + 1) >>> 1;
+            if (get(sampleMap, mid) < target) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        long count = get(sampleMap, lo);
+        for (long w = lo * SAMPLE_WORDS; ; ++w) {
+            long word = get(bitmap, w);
+            int bits = Long.bitCount(word);
+            if (count + bits >= target) {
+                for (long r = target - count; r > 1; --r) {
+                    word &= word - 1;
+                }
+                return 2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1;
+            }
+            count += bits;
+        }
+    }
+
+    /**
+     * Returns the smallest prime bigger than x.
+     *
+     * @param x The number.
+     * @return The next prime after x, or -1 if there is none up to the limit.
+     */
+    public long nextPrime(long x) {
+        if (x < 2) {
+            return limit >= 2 ? 2 : -1;
+        }
+        if (x >= limit) {
+            return -1;
+        }
+        long i = (x + 1) >>> 1;
+        long w = i >>> 6;
+        long word = get(bitmap, w) & (-1L << i);
+        while (word == 0) {
+            if (++w >= words) {
+                return -1;
+            }
+            word = get(bitmap, w);
+        }
+        long p = 2 * ((w << 6) + Long.numberOfTrailingZeros(word)) + 1;
+        return p <= limit ? p : -1;
+    }
+
+    /**
+     * Closes the file. The mapping stays valid until it is garbage collected.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
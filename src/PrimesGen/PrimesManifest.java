@@ -0,0 +1,145 @@
+package PrimesGen;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * PrimesManifest records which segments of a checkpointed run are finished, so that a restarted run can skip them.
+ * <p>
+ * The manifest is a small text file next to the output, one entry per line:
+ * <pre>
+ * findPrimes checkpoint 1
+ * limit 10000000000
+ * span 67108864
+ * done 0
+ * done 3
+ * ...
+ * </pre>
+ * A "done" line is appended and synced to the disk only after the part file of its segment has been closed and
+ * synced itself, so every segment listed is complete even if the run died right after. A line cut short by a crash
+ * is ignored. A manifest written for another limit or span does not match the run and is started over.
+ * <p>
+ * The methods are synchronized, the workers of a run may share one manifest.
+ */
+public class PrimesManifest implements Closeable {
+    /**
+     * The first line of every manifest.
+     */
+    private static final String HEADER = "findPrimes checkpoint 1";
+
+    /**
+     * The manifest file.
+     */
+    private final File file;
+
+    /**
+     * The finished segments.
+     */
+    private final BitSet done = new BitSet();
+
+    /**
+     * The stream the "done" lines are appended to.
+     */
+    private final FileOutputStream output;
+
+    /**
+     * Opens the manifest of a run, loading the finished segments if it was written for the same limit and span,
+     * and starting it over otherwise.
+     *
+     * @param file  The manifest file.
+     * @param limit The upper limit of the run.
+     * @param span  The width of a segment.
+     * @throws IOException If an I/O error occurs.
+     */
+    public PrimesManifest(File file, long limit, long span) throws IOException {
+        this.file = file;
+        String header = HEADER + "\nlimit " + limit + "\nspan " + span + "\n";
+        boolean resume = false;
+        if (file.exists()) {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+            resume = lines.size() >= 3 && (lines.get(0) + "\n" + lines.get(1) + "\n" + lines.get(2) + "\n").equals(header);
+            for (int i = 3; resume && i < lines.size(); ++i) {
+                String line = lines.get(i);
+                if (line.matches("done \\d{1,9}") && (i < lines.size() - 1 || isTerminated(file))) {
+                    done.set(Integer.parseInt(line.substring(5)));
+                }
+            }
+        }
+        this.output = new FileOutputStream(file, resume);
+        if (!resume) {
+            output.write(header.getBytes(StandardCharsets.US_ASCII));
+            output.getFD().sync();
+        }
+    }
+
+    /**
+     * Returns whether the last byte of a file is a line break, i.e. whether its last line was written completely.
+     *
+     * @param file The file.
+     * @return true if the file ends with a line break.
+     * @throws IOException If an I/O error occurs.
+     */
+    private static boolean isTerminated(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() == 0) {
+                return false;
+            }
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    /**
+     * Returns whether a segment is finished.
+     *
+     * @param segment The index of the segment.
+     * @return true if the segment is recorded as finished.
+     */
+    public synchronized boolean isDone(int segment) {
+        return done.get(segment);
+    }
+
+    /**
+     * Returns the number of finished segments.
+     *
+     * @return The number of finished segments.
+     */
+    public synchronized int doneCount() {
+        return done.cardinality();
+    }
+
+    /**
+     * Records a segment as finished and syncs the manifest to the disk.
+     *
+     * @param segment The index of the segment, its part file must already be complete on the disk.
+     * @throws IOException If an I/O error occurs.
+     */
+    public synchronized void markDone(int segment) throws IOException {
+        output.write(("done " + segment + "\n").getBytes(StandardCharsets.US_ASCII));
+        output.getFD().sync();
+        done.set(segment);
+    }
+
+    /**
+     * Closes the manifest.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        output.close();
+    }
+
+    /**
+     * Closes and deletes the manifest, once the run is complete.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+    }
+}
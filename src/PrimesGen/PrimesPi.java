@@ -0,0 +1,465 @@
+package PrimesGen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * PrimesPi counts the primes up to x without sieving up to x, with the combinatorial method of Meissel and Lehmer.
+ * <p>
+ * With a = pi(x^(1/3)) and b = pi(x^(1/2)),
+ * <pre>
+ * pi(x) = phi(x, a) + a - 1 - P2(x, a),    P2(x, a) = sum over a &lt; i &lt;= b of (pi(x / p_i) - i + 1)
+ * </pre>
+ * where phi(y, k) is the number of integers in [1, y] not divisible by any of the first k primes.
+ * <ul>
+ * <li>The small primes up to x^(1/2) are generated by {@link PrimesGenVec} (method 5). An odds-only bitmap of the primes
+ * up to x^(2/3), sieved in parallel with {@link SegmentedBitSieve}, with a rank per word answers pi(y) in constant time.
+ * The bitmap is capped at TABLE_LIMIT (about 100 MB), which covers x up to about 10^15.</li>
+ * <li>phi(x, a) is expanded by phi(y, k) = phi(y, k - 1) - phi(y / p_k, k - 1). The expansion stops at k = 6 with a
+ * table of the 30030-periodic pattern of 2 * 3 * 5 * 7 * 11 * 13, and at leaves y &lt; p_(k+1)^2, where
+ * phi(y, k) = pi(y) - k + 1. phi(y, k) for y below 2^16 and k below 100 is read from a cache built once per instance.
+ * The top-level terms are handed out to the threads one at a time.</li>
+ * <li>P2 needs pi(x / p_i) up to x^(2/3), which is read from the bitmap. Beyond the cap, the rest of the interval is cut
+ * into chunks that are counted in parallel with Long.bitCount, then the chunk counts are added up in order.</li>
+ * </ul>
+ * <p>
+ * Time Complexity: O(x^(2/3)) for the bitmap, sieving only up to x^(2/3), and well below that for phi(x, a) in practice.
+ * <p>
+ * Space Complexity: O(min(x^(2/3), TABLE_LIMIT)) bits for the bitmap, plus one sieve block per thread.
+ * <p>
+ * Limitations:
+ * - The square root of x must fit in an integer data type.
+ * - An instance is not thread safe, its pi(x) runs its own worker threads.
+ */
+public class PrimesPi {
+    /**
+     * The number of primes whose multiples are removed by the table, 2 to 13.
+     */
+    private static final int TABLE_PRIMES = 6;
+
+    /**
+     * The period of the table, 2 * 3 * 5 * 7 * 11 * 13.
+     */
+    private static final int TABLE_PERIOD = 30030;
+
+    /**
+     * The number of integers in one period coprime to TABLE_PERIOD.
+     */
+    private static final int TABLE_TOTIENT = 5760;
+
+    /**
+     * phi(r, 6) for r below TABLE_PERIOD.
+     */
+    private static final int[] TABLE = new int[TABLE_PERIOD];
+
+    /**
+     * Below this x, pi(x) is counted by sieving.
+     */
+    private static final long SIEVE_LIMIT = 1L << 20;
+
+    /**
+     * The smallest chunk of the P2 interval.
+     */
+    private static final long MIN_CHUNK = 1L << 22;
+
+    /**
+     * The largest number covered by the bitmap.
+     */
+    private static final long TABLE_LIMIT = 1L << 30;
+
+    /**
+     * The number of bitmap words sieved per task, 2^23 numbers.
+     */
+    private static final int BITMAP_CHUNK_WORDS = 1 << 16;
+
+    /**
+     * phi(y, k) is cached for k below this number of primes.
+     */
+    private static final int CACHE_PRIMES = 100;
+
+    /**
+     * phi(y, k) is cached for y below this limit, so every value fits in a char.
+     */
+    private static final int CACHE_LIMIT = 1 << 16;
+
+    static {
+        int count = 0;
+        for (int r = 1; r < TABLE_PERIOD; ++r) {
+            if (r % 2 != 0 && r % 3 != 0 && r % 5 != 0 && r % 7 != 0 && r % 11 != 0 && r % 13 != 0) {
+                ++count;
+            }
+            TABLE[r] = count;
+        }
+    }
+
+    /**
+     * The number of worker threads.
+     */
+    private final int threads;
+
+    /**
+     * The primes up to the square root of the current x.
+     */
+    private int[] primes;
+
+    /**
+     * The odds-only bitmap of the primes up to piLimit, the square root of the current x or, if bigger, the square of
+     * its cube root, capped at TABLE_LIMIT.
+     */
+    private long[] bitmap;
+
+    /**
+     * The number of odd primes before each word of the bitmap.
+     */
+    private int[] ranks;
+
+    /**
+     * phi(y, k) for k below CACHE_PRIMES and y below CACHE_LIMIT, built on first use.
+     */
+    private char[][] phiCache;
+
+    /**
+     * The square root of the current x.
+     */
+    private long sqrtX;
+
+    /**
+     * The limit of pi lookups in the bitmap, at least sqrtX.
+     */
+    private long piLimit;
+
+    /**
+     * Constructor for the PrimesPi class.
+     *
+     * @param threads The number of worker threads.
+     * @throws IllegalArgumentException If threads is not positive.
+     */
+    public PrimesPi(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid threads");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Returns pi(x), the number of primes not bigger than x.
+     *
+     * @param x The number.
+     * @return The number of primes up to x.
+     * @throws IllegalArgumentException If the square root of x does not fit in an integer data type.
+     * @throws RuntimeException         If interrupted while waiting for the workers.
+     */
+    public long pi(long x) {
+        if (x < 2) {
+            return 0;
+        }
+        if (x < SIEVE_LIMIT) {
+            PrimesGenVec small = new PrimesGenVec((int) x, (byte) 5);
+            small.run();
+            return small.getPrimes().size();
+        }
+        sqrtX = PrimesGenLongSeg.sqrt(x);
+        if (sqrtX > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("x is too big: " + x);
+        }
+        PrimesGenVec small = new PrimesGenVec((int) sqrtX, (byte) 5);
+        small.run();
+        primes = small.getPrimes().toArray();
+
+        long cbrtX = cbrt(x);
+        piLimit = Math.max(sqrtX, Math.min(cbrtX * cbrtX, TABLE_LIMIT));
+        try {
+            buildBitmap();
+            buildPhiCache();
+            int a = (int) piSmall(cbrtX);
+            int b = primes.length;
+            return phiTop(x, a) + a - 1 - p2(x, a, b);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            primes = null;
+            bitmap = null;
+            ranks = null;
+        }
+    }
+
+    /**
+     * Returns the integer cube root of x, the largest r with r * r * r <= x.
+     *
+     * @param x A non-negative number.
+     * @return The integer cube root of x.
+     */
+    private static long cbrt(long x) {
+        long r = (long) Math.cbrt((double) x);
+        while (r * r * r > x) {
+            --r;
+        }
+        while ((r + 1) * (r + 1) * (r + 1) <= x) {
+            ++r;
+        }
+        return r;
+    }
+
+    /**
+     * Sieves the bitmap of the odd primes up to piLimit in parallel and computes the rank of each of its words.
+     *
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private void buildBitmap() throws InterruptedException {
+        bitmap = new long[(int) ((piLimit >>> 7) + 1)];
+        int chunks = (bitmap.length + BITMAP_CHUNK_WORDS - 1) / BITMAP_CHUNK_WORDS;
+        AtomicInteger nextChunk = new AtomicInteger();
+        runWorkers(t -> {
+            for (int c = nextChunk.getAndIncrement(); c < chunks; c = nextChunk.getAndIncrement()) {
+                long lL = (long) c * BITMAP_CHUNK_WORDS * 128 + 1;
+                long uL = Math.min(lL + (long) BITMAP_CHUNK_WORDS * 128 - 2, piLimit);
+                SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, primes);
+                while (sieve.next()) {
+                    System.arraycopy(sieve.words(), 0, bitmap, (int) (sieve.low() >>> 7), (sieve.bits() + 63) >>> 6);
+                }
+            }
+        });
+        ranks = new int[bitmap.length];
+        for (int w = 1; w < bitmap.length; ++w) {
+            ranks[w] = ranks[w - 1] + Long.bitCount(bitmap[w - 1]);
+        }
+    }
+
+    /**
+     * Builds the cache of phi(y, k) for small y and k, column by column with phi(y, k) = phi(y, k - 1) - phi(y / p_k, k - 1).
+     * The first CACHE_PRIMES primes are the same for every x above SIEVE_LIMIT, so the cache is only built once.
+     */
+    private void buildPhiCache() {
+        if (phiCache != null) {
+            return;
+        }
+        char[][] cache = new char[CACHE_PRIMES][];
+        cache[TABLE_PRIMES] = new char[CACHE_LIMIT];
+        for (int y = 0; y < CACHE_LIMIT; ++y) {
+            cache[TABLE_PRIMES][y] = (char) phiTable(y);
+        }
+        for (int k = TABLE_PRIMES + 1; k < CACHE_PRIMES; ++k) {
+            long p = prime(k);
+            cache[k] = new char[CACHE_LIMIT];
+            for (int y = 0; y < CACHE_LIMIT; ++y) {
+                cache[k][y] = (char) (cache[k - 1][y] - cache[k - 1][(int) (y / p)]);
+            }
+        }
+        phiCache = cache;
+    }
+
+    /**
+     * Returns pi(y) from the bitmap.
+     *
+     * @param y A number not bigger than piLimit.
+     * @return The number of primes up to y.
+     */
+    private long piSmall(long y) {
+        if (y < 2) {
+            return 0;
+        }
+        long i = (y - 1) >>> 1;
+        int w = (int) (i >>> 6);
+        return 1 + ranks[w] + Long.bitCount(bitmap[w] & (-1L >>> (63 - (i & 63))));
+    }
+
+    /**
+     * Returns the k-th prime, 1-based.
+     *
+     * @param k The rank of the prime.
+     * @return The k-th prime.
+     */
+    private long prime(int k) {
+        return primes[k - 1];
+    }
+
+    /**
+     * Returns phi(y, 6) from the table.
+     *
+     * @param y The number.
+     * @return The number of integers in [1, y] not divisible by 2, 3, 5, 7, 11 or 13.
+     */
+    private static long phiTable(long y) {
+        return y / TABLE_PERIOD * TABLE_TOTIENT + TABLE[(int) (y % TABLE_PERIOD)];
+    }
+
+    /**
+     * Returns phi(y, k) for k at least 6.
+     *
+     * @param y The number.
+     * @param k The number of primes.
+     * @return The number of integers in [1, y] not divisible by any of the first k primes.
+     */
+    private long phi(long y, int k) {
+        if (k <= TABLE_PRIMES) {
+            return phiTable(y);
+        }
+        if (k < CACHE_PRIMES && y < CACHE_LIMIT) {
+            return phiCache[k][(int) y];
+        }
+        if (y <= piLimit && y < prime(k + 1) * prime(k + 1)) {
+            return y < 1 ? 0 : Math.max(piSmall(y) - k + 1, 1);
+        }
+        long sum = phiTable(y);
+        for (int i = TABLE_PRIMES + 1; i <= k; ++i) {
+            long p = prime(i);
+            long z = y / p;
+            if (z < p) {
+                long last = y >= prime(k) ? k : piSmall(y);
+                sum -= Math.max(0, last - i + 1);
+                break;
+            }
+            sum -= phi(z, i - 1);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns phi(x, a), with the top-level terms phi(x / p_i, i - 1) shared between the threads.
+     *
+     * @param x The number.
+     * @param a The number of primes.
+     * @return phi(x, a).
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private long phiTop(long x, int a) throws InterruptedException {
+        AtomicInteger nextTerm = new AtomicInteger(TABLE_PRIMES + 1);
+        long[] sums = new long[threads];
+        runWorkers(t -> {
+            long sum = 0;
+            for (int i = nextTerm.getAndIncrement(); i <= a; i = nextTerm.getAndIncrement()) {
+                sum += phi(x / prime(i), i - 1);
+            }
+            sums[t] = sum;
+        });
+        long phi = phiTable(x);
+        for (long sum : sums) {
+            phi -= sum;
+        }
+        return phi;
+    }
+
+    /**
+     * Returns P2(x, a), the number of integers up to x with exactly two prime factors bigger than p_a.
+     *
+     * @param x The number.
+     * @param a pi(x^(1/3)).
+     * @param b pi(x^(1/2)).
+     * @return P2(x, a).
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private long p2(long x, int a, int b) throws InterruptedException {
+        if (b <= a) {
+            return 0;
+        }
+        // The targets x / p_i in ascending order, i from b down to a + 1.
+        long[] targets = new long[b - a];
+        for (int i = b; i > a; --i) {
+            targets[b - i] = x / prime(i);
+        }
+        long high = targets[targets.length - 1];
+        long[] counts = new long[targets.length];
+
+        int first = 0;
+        while (first < targets.length && targets[first] <= piLimit) {
+            counts[first] = piSmall(targets[first]);
+            ++first;
+        }
+        if (first < targets.length) {
+            long low = piLimit + 1;
+            long chunk = Math.max(MIN_CHUNK, (high - low + 1) / (threads * 8L) + 1);
+            int chunks = (int) ((high - low + chunk) / chunk);
+            long[] totals = new long[chunks];
+            // The targets of chunk c are targets[from[c]] to targets[from[c + 1] - 1].
+            int[] from = new int[chunks + 1];
+            from[chunks] = targets.length;
+            for (int c = 0, t = first; c < chunks; ++c) {
+                while (t < targets.length && targets[t] < low + c * chunk) {
+                    ++t;
+                }
+                from[c] = t;
+            }
+            AtomicInteger nextChunk = new AtomicInteger();
+            runWorkers(w -> {
+                for (int c = nextChunk.getAndIncrement(); c < chunks; c = nextChunk.getAndIncrement()) {
+                    long lL = low + c * chunk;
+                    long uL = Math.min(lL + chunk - 1, high);
+                    totals[c] = countChunk(lL, uL, targets, counts, from[c], from[c + 1]);
+                }
+            });
+            long before = piSmall(piLimit);
+            for (int c = 0; c < chunks; ++c) {
+                for (int t = from[c]; t < from[c + 1]; ++t) {
+                    counts[t] += before;
+                }
+                before += totals[c];
+            }
+        }
+
+        long p2 = 0;
+        for (int i = b; i > a; --i) {
+            p2 += counts[b - i] - i + 1;
+        }
+        return p2;
+    }
+
+    /**
+     * Counts the primes in [lL, uL], and for each target in [lL, uL] the primes in [lL, target].
+     *
+     * @param lL      The lower limit of the chunk, bigger than 2.
+     * @param uL      The upper limit of the chunk.
+     * @param targets The targets in ascending order.
+     * @param counts  Receives the count of each target.
+     * @param from    The index of the first target in the chunk.
+     * @param to      The index after the last target in the chunk.
+     * @return The number of primes in [lL, uL].
+     */
+    private long countChunk(long lL, long uL, long[] targets, long[] counts, int from, int to) {
+        SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, primes);
+        long total = 0;
+        int t = from;
+        while (sieve.next()) {
+            long[] words = sieve.words();
+            long low = sieve.low();
+            int n = (sieve.bits() + 63) >>> 6;
+            long end = low + 2L * sieve.bits();
+            int w = 0;
+            long running = total;
+            for (; t < to && targets[t] < low; ++t) {
+                counts[t] = running;
+            }
+            for (; t < to && targets[t] < end; ++t) {
+                long j = (targets[t] - low) >>> 1;
+                for (; w < (int) (j >>> 6); ++w) {
+                    running += Long.bitCount(words[w]);
+                }
+                counts[t] = running + Long.bitCount(words[w] & (-1L >>> (63 - (j & 63))));
+            }
+            for (; w < n; ++w) {
+                running += Long.bitCount(words[w]);
+            }
+            total = running;
+        }
+        return total;
+    }
+
+    /**
+     * Runs a task on every worker thread and waits for all of them.
+     *
+     * @param task The task, given the index of the thread.
+     * @throws InterruptedException If interrupted while waiting for the workers.
+     */
+    private void runWorkers(IntConsumer task) throws InterruptedException {
+        List<Thread> threadList = new ArrayList<>();
+        for (int t = 0; t < threads; ++t) {
+            int index = t;
+            threadList.add(new Thread(() -> task.accept(index), "Counting thread " + t));
+            threadList.get(t).start();
+        }
+        for (Thread thread : threadList) {
+            thread.join();
+        }
+    }
+}
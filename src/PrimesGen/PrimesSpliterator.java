@@ -0,0 +1,226 @@
+package PrimesGen;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+
+/**
+ * PrimesSpliterator is a lazy, splittable source of the primes in a range [lL, uL], the backing of {@link Primes}.
+ * <p>
+ * Nothing is sieved until the first prime is requested; then the range is sieved one block at a time by a
+ * {@link SegmentedBitSieve}, so only one block of SEGMENT_WORDS longs is held at a time, whatever the width of the range.
+ * Until traversal starts, {@link #trySplit()} hands the lower half of the range to a new spliterator, which lets a
+ * parallel stream sieve the halves on different cores. The base primes up to the square root of uL are computed once
+ * and shared, read-only, by all the spliterators split off from the same one.
+ * <p>
+ * The primes are reported in ascending order, the spliterator is ORDERED, SORTED, DISTINCT, NONNULL and IMMUTABLE.
+ */
+public class PrimesSpliterator implements Spliterator.OfLong {
+    /**
+     * The smallest range that is still split in two, so each half is at least a few blocks.
+     */
+    private static final long MIN_SPLIT = 1L << 20;
+
+    /**
+     * The odd base primes up to the square root of uL, shared between splits.
+     */
+    private final int[] basePrimes;
+
+    /**
+     * The upper limit of the range.
+     */
+    private final long uL;
+
+    /**
+     * The first number that has not been sieved yet.
+     */
+    private long from;
+
+    /**
+     * Whether the prime 2 is still to be reported.
+     */
+    private boolean two;
+
+    /**
+     * The sieve, created when traversal starts.
+     */
+    private SegmentedBitSieve sieve;
+
+    /**
+     * The words of the current block.
+     */
+    private long[] words;
+
+    /**
+     * The number of words of the current block.
+     */
+    private int wordCount;
+
+    /**
+     * The index of the current word.
+     */
+    private int w;
+
+    /**
+     * The bits of the current word that have not been reported yet.
+     */
+    private long word;
+
+    /**
+     * Whether the whole range has been reported.
+     */
+    private boolean done;
+
+    /**
+     * Constructs a spliterator over the primes in [lL, uL].
+     *
+     * @param lL The lower limit of the range.
+     * @param uL The upper limit of the range.
+     * @throws IllegalArgumentException If the square root of uL does not fit in an integer data type.
+     */
+    public PrimesSpliterator(long lL, long uL) {
+        this(Math.max(lL, 0), uL, uL < 9 ? new int[0] : checkedBasePrimes(uL));
+    }
+
+    /**
+     * Constructs a spliterator over the primes in [lL, uL] with the given base primes.
+     *
+     * @param lL         The lower limit of the range.
+     * @param uL         The upper limit of the range.
+     * @param basePrimes The odd primes up to the square root of uL.
+     */
+    private PrimesSpliterator(long lL, long uL, int[] basePrimes) {
+        this.from = lL;
+        this.uL = uL;
+        this.basePrimes = basePrimes;
+        this.two = lL <= 2 && uL >= 2;
+        this.done = lL > uL;
+    }
+
+    /**
+     * Returns the base primes for uL after checking that uL is supported.
+     *
+     * @param uL The upper limit of the range.
+     * @return The odd primes up to the square root of uL.
+     * @throws IllegalArgumentException If the square root of uL does not fit in an integer data type.
+     */
+    private static int[] checkedBasePrimes(long uL) {
+        if (PrimesGenLongSeg.sqrt(uL) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("uL is too big: " + uL);
+        }
+        return BitSieve.basePrimes(uL);
+    }
+
+    /**
+     * Sieves the next block.
+     *
+     * @return false if the whole range has been sieved.
+     */
+    private boolean nextBlock() {
+        if (sieve == null) {
+            sieve = new SegmentedBitSieve(from, uL, basePrimes);
+        }
+        if (!sieve.next()) {
+            done = true;
+            return false;
+        }
+        words = sieve.words();
+        wordCount = (sieve.bits() + 63) >>> 6;
+        w = 0;
+        word = words[0];
+        from = sieve.low() + 2L * sieve.bits();
+        return true;
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if (two) {
+            two = false;
+            action.accept(2);
+            return true;
+        }
+        while (word == 0) {
+            if (done) {
+                return false;
+            }
+            if (sieve != null && ++w < wordCount) {
+                word = words[w];
+            } else if (!nextBlock()) {
+                return false;
+            }
+        }
+        action.accept(sieve.low() + 2 * (((long) w << 6) + Long.numberOfTrailingZeros(word)));
+        word &= word - 1;
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        if (two) {
+            two = false;
+            action.accept(2);
+        }
+        if (done) {
+            return;
+        }
+        if (sieve == null && !nextBlock()) {
+            return;
+        }
+        do {
+            long low = sieve.low();
+            for (; w < wordCount; word = ++w < wordCount ? words[w] : 0) {
+                for (; word != 0; word &= word - 1) {
+                    action.accept(low + 2 * (((long) w << 6) + Long.numberOfTrailingZeros(word)));
+                }
+            }
+        } while (nextBlock());
+    }
+
+    /**
+     * Splits off the lower half of the range, if traversal has not started and the range is wide enough.
+     *
+     * @return A spliterator over the lower half, or null.
+     */
+    @Override
+    public PrimesSpliterator trySplit() {
+        if (sieve != null || done || uL - from < MIN_SPLIT) {
+            return null;
+        }
+        long mid = from + (uL - from) / 2;
+        PrimesSpliterator prefix = new PrimesSpliterator(from, mid, basePrimes);
+        prefix.two = two;
+        two = false;
+        from = mid + 1;
+        return prefix;
+    }
+
+    /**
+     * Estimates the number of primes left with the prime number theorem, x / ln x.
+     *
+     * @return The estimated number of primes left.
+     */
+    @Override
+    public long estimateSize() {
+        if (done) {
+            return two ? 1 : 0;
+        }
+        double high = uL / Math.log(Math.max(uL, 3));
+        double low = from < 3 ? 0 : from / Math.log(from);
+        return (long) Math.max(0, high - low) + Long.bitCount(word) + (two ? 1 : 0);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Returns null, the primes are sorted in their natural order.
+     *
+     * @return null.
+     */
+    @Override
+    public Comparator<? super Long> getComparator() {
+        return null;
+    }
+}
@@ -0,0 +1,326 @@
+package PrimesGen;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * PrimesStats gathers the gap and constellation statistics of the primes of a range in a single pass, while they are
+ * generated, so the output never has to be read back.
+ * <p>
+ * It counts the primes, the maximal gap and the record gaps (every gap bigger than all gaps before it), and the pairs
+ * and tuples of primes of the admissible patterns up to a width of 8:
+ * <pre>
+ * twin        (p, p + 2)           cousin      (p, p + 4)           sexy         (p, p + 6)
+ * triplet     (p, p + 2, p + 6) and (p, p + 4, p + 6)               quadruplet   (p, p + 2, p + 6, p + 8)
+ * </pre>
+ * A pattern is counted when its last prime is accepted, by looking up the other primes among the last TAIL primes.
+ * <p>
+ * Each worker thread feeds its own PrimesStats with the primes of its range, in ascending order. The statistics of
+ * adjacent ranges are then combined with {@link #merge(PrimesStats)}, which also fixes up the boundary: the gap between
+ * the two ranges is added, and the first primes of the second range are replayed against the last primes of the first
+ * one, counting only the patterns that start in the first range, the others have been counted already.
+ * <p>
+ * An instance is not thread safe.
+ */
+public class PrimesStats implements LongConsumer, IntConsumer {
+    /**
+     * The widest pattern.
+     */
+    private static final int WIDTH = 8;
+
+    /**
+     * The number of primes kept at each end of the range, enough for any window of WIDTH numbers.
+     */
+    private static final int TAIL = 5;
+
+    /**
+     * The number of primes.
+     */
+    private long count;
+
+    /**
+     * The first and the last prime.
+     */
+    private long first, last;
+
+    /**
+     * The first primes, up to TAIL of them, for the boundary fix-up.
+     */
+    private final long[] head = new long[TAIL];
+
+    /**
+     * The last primes, up to TAIL of them, as a ring indexed by count.
+     */
+    private final long[] tail = new long[TAIL];
+
+    /**
+     * The biggest gap so far, and the prime it starts at.
+     */
+    private long maxGap, maxGapStart;
+
+    /**
+     * The record gaps, pairs of the prime a gap starts at and the gap.
+     */
+    private long[] records = new long[16];
+
+    /**
+     * The number of longs in records.
+     */
+    private int recordLength;
+
+    /**
+     * The numbers of twin, cousin and sexy pairs, triplets and quadruplets.
+     */
+    private long twins, cousins, sexy, triplets, quadruplets;
+
+    /**
+     * Accepts the next prime of the range.
+     *
+     * @param p The prime, bigger than the last one.
+     */
+    @Override
+    public void accept(long p) {
+        if (count == 0) {
+            first = p;
+        } else {
+            gap(last, p - last);
+        }
+        countPatterns(p, Long.MAX_VALUE);
+        push(p);
+    }
+
+    /**
+     * Accepts the next prime of the range.
+     *
+     * @param p The prime, bigger than the last one.
+     */
+    @Override
+    public void accept(int p) {
+        accept((long) p);
+    }
+
+    /**
+     * Appends a prime to the head, the tail and the count.
+     *
+     * @param p The prime.
+     */
+    private void push(long p) {
+        if (count < TAIL) {
+            head[(int) count] = p;
+        }
+        tail[(int) (count % TAIL)] = p;
+        ++count;
+        last = p;
+    }
+
+    /**
+     * Records a gap, if it is a new record.
+     *
+     * @param start The prime the gap starts at.
+     * @param gap   The gap.
+     */
+    private void gap(long start, long gap) {
+        if (gap <= maxGap) {
+            return;
+        }
+        maxGap = gap;
+        maxGapStart = start;
+        if (recordLength == records.length) {
+            records = Arrays.copyOf(records, recordLength * 2);
+        }
+        records[recordLength++] = start;
+        records[recordLength++] = gap;
+    }
+
+    /**
+     * Returns whether a number is one of the last primes.
+     *
+     * @param x The number.
+     * @return true if x is among the last TAIL primes.
+     */
+    private boolean recent(long x) {
+        for (int k = 0; k < Math.min(count, TAIL); ++k) {
+            if (tail[k] == x) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the patterns that end at a prime and start below a boundary.
+     *
+     * @param p        The prime, not yet pushed.
+     * @param boundary Only the patterns whose first prime is below it are counted.
+     */
+    private void countPatterns(long p, long boundary) {
+        if (p - WIDTH >= boundary) {
+            return;
+        }
+        boolean m2 = recent(p - 2);
+        boolean m4 = recent(p - 4);
+        boolean m6 = recent(p - 6);
+        if (m2 && p - 2 < boundary) {
+            ++twins;
+        }
+        if (m4 && p - 4 < boundary) {
+            ++cousins;
+        }
+        if (m6 && p - 6 < boundary) {
+            ++sexy;
+            if (m4 || m2) {
+                ++triplets;
+            }
+        }
+        if (m6 && m2 && p - WIDTH < boundary && recent(p - WIDTH)) {
+            ++quadruplets;
+        }
+    }
+
+    /**
+     * Adds the statistics of the range right after this one, fixing up the patterns and the gap across the boundary.
+     *
+     * @param next The statistics of the next range, whose primes are all bigger than the last prime of this one.
+     * @return This PrimesStats.
+     */
+    public PrimesStats merge(PrimesStats next) {
+        if (next.count == 0) {
+            return this;
+        }
+        long boundary = next.first;
+        long total = count + next.count;
+        if (count == 0) {
+            first = next.first;
+        } else {
+            gap(last, next.first - last);
+        }
+        for (int k = 0; k < Math.min(next.count, TAIL); ++k) {
+            countPatterns(next.head[k], boundary);
+            push(next.head[k]);
+        }
+        for (int k = 0; k < next.recordLength; k += 2) {
+            gap(next.records[k], next.records[k + 1]);
+        }
+        if (next.count > TAIL) {
+            for (int k = 0; k < TAIL; ++k) {
+                long c = next.count - TAIL + k;
+                tail[(int) ((total - TAIL + k) % TAIL)] = next.tail[(int) (c % TAIL)];
+            }
+        }
+        count = total;
+        last = next.last;
+        twins += next.twins;
+        cousins += next.cousins;
+        sexy += next.sexy;
+        triplets += next.triplets;
+        quadruplets += next.quadruplets;
+        return this;
+    }
+
+    /**
+     * Returns the number of primes.
+     *
+     * @return The number of primes.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the biggest gap between consecutive primes.
+     *
+     * @return The maximal gap, 0 if there are less than two primes.
+     */
+    public long getMaxGap() {
+        return maxGap;
+    }
+
+    /**
+     * Returns the prime the biggest gap starts at.
+     *
+     * @return The start of the maximal gap.
+     */
+    public long getMaxGapStart() {
+        return maxGapStart;
+    }
+
+    /**
+     * Returns the record gaps, every gap bigger than all gaps before it.
+     *
+     * @return Pairs of the prime a record gap starts at and the gap, in ascending order.
+     */
+    public long[] getRecordGaps() {
+        return Arrays.copyOf(records, recordLength);
+    }
+
+    /**
+     * Returns the number of twin primes (p, p + 2).
+     *
+     * @return The number of twin pairs.
+     */
+    public long getTwins() {
+        return twins;
+    }
+
+    /**
+     * Returns the number of cousin primes (p, p + 4).
+     *
+     * @return The number of cousin pairs.
+     */
+    public long getCousins() {
+        return cousins;
+    }
+
+    /**
+     * Returns the number of sexy primes (p, p + 6).
+     *
+     * @return The number of sexy pairs.
+     */
+    public long getSexy() {
+        return sexy;
+    }
+
+    /**
+     * Returns the number of prime triplets (p, p + 2, p + 6) and (p, p + 4, p + 6).
+     *
+     * @return The number of triplets.
+     */
+    public long getTriplets() {
+        return triplets;
+    }
+
+    /**
+     * Returns the number of prime quadruplets (p, p + 2, p + 6, p + 8).
+     *
+     * @return The number of quadruplets.
+     */
+    public long getQuadruplets() {
+        return quadruplets;
+    }
+
+    /**
+     * Returns the statistics as text, one line each.
+     *
+     * @return The report.
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append("primes: ").append(count);
+        if (count > 0) {
+            report.append(" (").append(first).append(" .. ").append(last).append(')');
+        }
+        report.append("\nmaximal gap: ").append(maxGap).append(" after ").append(maxGapStart);
+        report.append("\nrecord gaps:");
+        for (int k = 0; k < recordLength; k += 2) {
+            report.append(' ').append(records[k + 1]).append('@').append(records[k]);
+        }
+        report.append("\ntwin primes: ").append(twins);
+        report.append("\ncousin primes: ").append(cousins);
+        report.append("\nsexy primes: ").append(sexy);
+        report.append("\nprime triplets: ").append(triplets);
+        report.append("\nprime quadruplets: ").append(quadruplets);
+        return report.toString();
+    }
+}
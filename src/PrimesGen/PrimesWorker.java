@@ -0,0 +1,84 @@
+package PrimesGen;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.file.Files;
+
+/**
+ * PrimesWorker is the worker process of a distributed run, see {@link PrimesCoordinator}.
+ * <p>
+ * It connects to the coordinator, sieves the base primes up to the square root of the limit once, and then sieves the
+ * ranges it is sent one after the other with {@link PrimesGenLongSeg}, until it is told to stop or the connection is
+ * closed. Each range is answered either with its count or with its text output, see the protocol of
+ * {@link PrimesCoordinator}.
+ * <p>
+ * Usage: java -cp &lt;classpath&gt; PrimesGen.PrimesWorker &lt;host&gt; &lt;port&gt; &lt;limit&gt;
+ */
+public class PrimesWorker {
+    private PrimesWorker() {
+    }
+
+    /**
+     * Runs a worker.
+     *
+     * @param args The host and the port of the coordinator, and the upper limit of the run.
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length != 3) {
+                throw new IllegalArgumentException("Invalid arguments");
+            }
+            run(args[0], Integer.parseInt(args[1]), Long.parseLong(args[2]));
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Please submit your issue at https://github.com/Water-Buckets/findPrimes-Java/issues");
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Serves the ranges sent by a coordinator.
+     *
+     * @param host  The host of the coordinator.
+     * @param port  The port of the coordinator.
+     * @param limit The upper limit of the run, its square root must fit in an integer data type.
+     * @throws IOException If an I/O error occurs.
+     */
+    static void run(String host, int port, long limit) throws IOException {
+        PrimesGenVec preSieve = new PrimesGenVec((int) PrimesGenLongSeg.sqrt(limit), (byte) 5);
+        preSieve.run();
+        IntList preSievedPrimes = preSieve.getPrimes();
+
+        try (Socket socket = new Socket(host, port);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                int task = in.readInt();
+                if (task < 0) {
+                    return;
+                }
+                long lL = in.readLong();
+                long uL = in.readLong();
+                boolean count = in.readBoolean();
+                out.writeInt(task);
+                if (count) {
+                    PrimesGenLongSeg result = new PrimesGenLongSeg(lL, uL, preSievedPrimes);
+                    result.run();
+                    out.writeLong(result.getCount());
+                } else {
+                    File part = File.createTempFile("primes", ".part");
+                    try {
+                        new PrimesGenLongSeg(lL, uL, preSievedPrimes, part).run();
+                        out.writeLong(part.length());
+                        Files.copy(part.toPath(), out);
+                    } finally {
+                        if (!part.delete()) {
+                            part.deleteOnExit();
+                        }
+                    }
+                }
+                out.flush();
+            }
+        }
+    }
+}
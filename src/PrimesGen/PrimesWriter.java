@@ -0,0 +1,280 @@
+package PrimesGen;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PrimesWriter writes prime numbers as space-separated decimal text to an NIO channel.
+ * The digits are formatted straight into a reusable byte array, two at a time from a digit-pair lookup table,
+ * so no String is created per prime and no charset encoder is involved.
+ * The array is flushed through the channel in large blocks of BUFFER_SIZE bytes.
+ * <p>
+ * A writer either appends at the current position of its channel, or writes positionally into a FileChannel
+ * starting at a given file position, so that several writers can fill disjoint regions of the same file.
+ * <p>
+ * Note: This class is not thread safe, every thread uses its own writer.
+ */
+public class PrimesWriter implements Closeable {
+    /**
+     * The size of the buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The ASCII digits of 00, 01, ..., 99.
+     */
+    private static final byte[] DIGIT_PAIRS = new byte[200];
+
+    static {
+        for (int i = 0; i < 100; ++i) {
+            DIGIT_PAIRS[2 * i] = (byte) ('0' + i / 10);
+            DIGIT_PAIRS[2 * i + 1] = (byte) ('0' + i % 10);
+        }
+    }
+
+    /**
+     * The channel the text is written to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The file position of the next flush, or -1 to write at the current position of the channel.
+     */
+    private long position;
+
+    /**
+     * Whether the channel was opened by this writer and is closed with it.
+     */
+    private final boolean ownsChannel;
+
+    /**
+     * The reusable byte buffer.
+     */
+    private final byte[] bytes = new byte[BUFFER_SIZE];
+
+    /**
+     * The ByteBuffer wrapping the byte array.
+     */
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+    /**
+     * The number of bytes in the buffer.
+     */
+    private int count;
+
+    /**
+     * The statistics fed with every number written, or null.
+     */
+    private PrimesStats stats;
+
+    /**
+     * Constructs a writer that truncates the given file and writes to it.
+     *
+     * @param file The file to be written.
+     * @throws IOException If the file could not be opened.
+     */
+    public PrimesWriter(File file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Constructs a writer for the given file.
+     *
+     * @param file   The file to be written.
+     * @param append Whether to append to the file instead of truncating it.
+     * @throws IOException If the file could not be opened.
+     */
+    public PrimesWriter(File file, boolean append) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+        this.position = -1;
+        this.ownsChannel = true;
+    }
+
+    /**
+     * Constructs a writer that writes at the current position of the given channel.
+     * The channel is not closed by {@link #close()}.
+     *
+     * @param channel The channel to be written.
+     */
+    public PrimesWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.position = -1;
+        this.ownsChannel = false;
+    }
+
+    /**
+     * Constructs a writer that writes positionally into the given FileChannel, starting at the given position.
+     * The position of the channel itself is not changed and the channel is not closed by {@link #close()}.
+     *
+     * @param channel  The channel to be written.
+     * @param position The file position of the first byte.
+     */
+    public PrimesWriter(FileChannel channel, long position) {
+        this.channel = channel;
+        this.position = position;
+        this.ownsChannel = false;
+    }
+
+    /**
+     * Returns the number of decimal digits of a non-negative number.
+     *
+     * @param value A non-negative number.
+     * @return The number of digits.
+     */
+    public static int digits(long value) {
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            ++digits;
+        }
+        return digits;
+    }
+
+    /**
+     * Sets the statistics to be fed with every number written from now on.
+     *
+     * @param stats The statistics, or null.
+     */
+    public void setStats(PrimesStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Writes a non-negative int followed by a space.
+     *
+     * @param value The number to be written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(int value) throws IOException {
+        if (stats != null) {
+            stats.accept(value);
+        }
+        if (BUFFER_SIZE - count < 12) {
+            flush();
+        }
+        int end = count + digits(value);
+        int pos = end;
+        while (value >= 100) {
+            int r = value % 100;
+            value /= 100;
+            bytes[--pos] = DIGIT_PAIRS[2 * r + 1];
+            bytes[--pos] = DIGIT_PAIRS[2 * r];
+        }
+        if (value >= 10) {
+            bytes[--pos] = DIGIT_PAIRS[2 * value + 1];
+            bytes[--pos] = DIGIT_PAIRS[2 * value];
+        } else {
+            bytes[--pos] = (byte) ('0' + value);
+        }
+        bytes[end] = ' ';
+        count = end + 1;
+    }
+
+    /**
+     * Writes a non-negative long followed by a space.
+     *
+     * @param value The number to be written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(long value) throws IOException {
+        if (value <= Integer.MAX_VALUE) {
+            write((int) value);
+            return;
+        }
+        if (stats != null) {
+            stats.accept(value);
+        }
+        if (BUFFER_SIZE - count < 21) {
+            flush();
+        }
+        int end = count + digits(value);
+        int pos = end;
+        while (value > Integer.MAX_VALUE) {
+            int r = (int) (value % 100);
+            value /= 100;
+            bytes[--pos] = DIGIT_PAIRS[2 * r + 1];
+            bytes[--pos] = DIGIT_PAIRS[2 * r];
+        }
+        int rest = (int) value;
+        while (rest >= 100) {
+            int r = rest % 100;
+            rest /= 100;
+            bytes[--pos] = DIGIT_PAIRS[2 * r + 1];
+            bytes[--pos] = DIGIT_PAIRS[2 * r];
+        }
+        if (rest >= 10) {
+            bytes[--pos] = DIGIT_PAIRS[2 * rest + 1];
+            bytes[--pos] = DIGIT_PAIRS[2 * rest];
+        } else {
+            bytes[--pos] = (byte) ('0' + rest);
+        }
+        bytes[end] = ' ';
+        count = end + 1;
+    }
+
+    /**
+     * Writes all primes of a list.
+     *
+     * @param primes The primes to be written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void write(IntList primes) throws IOException {
+        for (int k = 0; k < primes.size(); ++k) {
+            write(primes.get(k));
+        }
+    }
+
+    /**
+     * Appends the whole content of a file, for example a part written by another worker.
+     * The bytes are copied by the channel with {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     *
+     * @param part The file to be appended.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If this writer writes positionally.
+     */
+    public void append(File part) throws IOException {
+        if (position >= 0) {
+            throw new IllegalStateException("Cannot append to a positional writer.");
+        }
+        flush();
+        try (FileChannel in = FileChannel.open(part.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            for (long done = 0; done < size; ) {
+                done += in.transferTo(done, size - done, channel);
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    public void flush() throws IOException {
+        buffer.clear().limit(count);
+        while (buffer.hasRemaining()) {
+            if (position >= 0) {
+                position += ((FileChannel) channel).write(buffer, position);
+            } else {
+                channel.write(buffer);
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Flushes the buffer and closes the channel if it was opened by this writer.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
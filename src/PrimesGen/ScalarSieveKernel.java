@@ -0,0 +1,29 @@
+package PrimesGen;
+
+/**
+ * ScalarSieveKernel is the portable {@link SieveKernel}, it handles one byte at a time.
+ * It is used when the Vector API is not available.
+ * Without vectors, clearing the multiples of each prime one write at a time is cheaper than an AND over every byte.
+ */
+final class ScalarSieveKernel extends SieveKernel {
+    @Override
+    void crossPatternPrimes(byte[] block, long low, int length) {
+        for (int p : PATTERN_PRIMES) {
+            int offset = (int) (low % p);
+            for (int i = offset == 0 ? 0 : p - offset; i < length; i += p) {
+                block[i] = 0;
+            }
+        }
+    }
+
+    @Override
+    int collect(byte[] block, int length, int base, int[] out) {
+        int count = 0;
+        for (int i = 0; i < length; ++i) {
+            if (block[i] != 0) {
+                out[count++] = base + i;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,281 @@
+package PrimesGen;
+
+import java.util.Arrays;
+
+/**
+ * SegmentedBitSieve sieves a range [lL, uL] block by block with the bit-packed, odds-only storage of {@link BitSieve}.
+ * <p>
+ * Each block holds SEGMENT_WORDS longs, so it stays in the L1/L2 cache while it is being crossed off.
+ * The buffer is allocated once and reused for every block, and the next odd multiple of every base prime is kept
+ * between blocks, so the memory needed does not depend on the width of the range.
+ * <p>
+ * Base primes of at least one block of bits hit a block at most once, and far out most of them miss it completely.
+ * They are not visited block by block but kept in a bucket sieve (T. Oliveira e Silva): every such prime is filed,
+ * with the bit offset of its next odd multiple, in the bucket of the block where that multiple falls. The buckets form
+ * a ring, one bucket per block up to the largest step, and sieving a block only empties its own bucket, refiling each
+ * prime in the bucket of its next hit. The cost of a block is then proportional to the multiples that actually fall
+ * into it instead of to the number of base primes. A prime is only filed once the block of its square comes into
+ * the reach of the ring.
+ * <p>
+ * Usage:
+ * <pre>
+ * SegmentedBitSieve sieve = new SegmentedBitSieve(lL, uL, basePrimes);
+ * while (sieve.next()) {
+ *     // bit i of sieve.words() stands for sieve.low() + 2i, for i below sieve.bits()
+ * }
+ * </pre>
+ * An instance is not thread safe, every worker thread uses its own.
+ */
+final class SegmentedBitSieve {
+    /**
+     * The number of longs in a block (32 KiB).
+     */
+    static final int SEGMENT_WORDS = 1 << 12;
+
+    /**
+     * The initial size of a bucket.
+     */
+    private static final int BUCKET_SIZE = 64;
+
+    /**
+     * The odd base primes crossed off block by block, all of them if the range fits in one block,
+     * and those below the number of bits of a block otherwise.
+     */
+    private final int[] primes;
+
+    /**
+     * The odd base primes of at least the number of bits of a block, kept in the buckets.
+     */
+    private final int[] largePrimes;
+
+    /**
+     * The first odd multiple not below the start of the range of each large prime, in the same order.
+     */
+    private final long[] largeStarts;
+
+    /**
+     * The number of large primes filed in the buckets so far, the others are still ahead of the ring.
+     */
+    private int filed;
+
+    /**
+     * The primes in each bucket of the ring, a bucket is allocated when the first prime is filed in it.
+     */
+    private int[][] bucketPrimes;
+
+    /**
+     * The bit offset in its block of the next multiple of each prime in each bucket.
+     */
+    private int[][] bucketOffsets;
+
+    /**
+     * The number of primes in each bucket.
+     */
+    private int[] bucketSizes;
+
+    /**
+     * The index of the current block, counted from the start of the range.
+     */
+    private long block = -1;
+
+    /**
+     * The first odd number of the range.
+     */
+    private final long first;
+
+    /**
+     * The next odd multiple of each base prime that has not been crossed off yet.
+     */
+    private final long[] next;
+
+    /**
+     * The reusable block buffer.
+     */
+    private final long[] words;
+
+    /**
+     * The number of odd numbers of the range that have not been sieved yet.
+     */
+    private long remaining;
+
+    /**
+     * The first odd number of the next block.
+     */
+    private long nextLow;
+
+    /**
+     * The first odd number of the current block.
+     */
+    private long low;
+
+    /**
+     * The number of valid bits in the current block.
+     */
+    private int bits;
+
+    /**
+     * Constructor for the SegmentedBitSieve class.
+     *
+     * @param lL         The lower limit of the range.
+     * @param uL         The upper limit of the range.
+     * @param basePrimes The primes up to the square root of uL, in ascending order. The prime 2 is skipped.
+     */
+    SegmentedBitSieve(long lL, long uL, int[] basePrimes) {
+        long first = Math.max(lL, 1) | 1;
+        this.remaining = first > uL ? 0 : (uL - first) / 2 + 1;
+        this.nextLow = first;
+        this.words = new long[(int) Math.min(SEGMENT_WORDS, (remaining + 63) >>> 6)];
+
+        int blockBits = remaining > (long) SEGMENT_WORDS << 6 ? SEGMENT_WORDS << 6 : Integer.MAX_VALUE;
+        int count = 0;
+        int largeCount = 0;
+        for (int p : basePrimes) {
+            if (p != 2 && (long) p * p <= uL) {
+                if (p < blockBits) {
+                    ++count;
+                } else {
+                    ++largeCount;
+                }
+            }
+        }
+        this.first = first;
+        this.primes = new int[count];
+        this.next = new long[count];
+        this.largePrimes = new int[largeCount];
+        this.largeStarts = new long[largeCount];
+        int k = 0;
+        int l = 0;
+        for (int p : basePrimes) {
+            if (p != 2 && (long) p * p <= uL) {
+                long j = Math.max((long) p * p, (first + p - 1) / p * p);
+                if ((j & 1) == 0) {
+                    j += p;
+                }
+                if (p < blockBits) {
+                    primes[k] = p;
+                    next[k++] = j;
+                } else {
+                    largePrimes[l] = p;
+                    largeStarts[l++] = j;
+                }
+            }
+        }
+        if (largeCount > 0) {
+            int ring = largePrimes[largeCount - 1] / blockBits + 2;
+            this.bucketPrimes = new int[ring][];
+            this.bucketOffsets = new int[ring][];
+            this.bucketSizes = new int[ring];
+        }
+    }
+
+    /**
+     * Files a large prime in the bucket of the block of its next multiple.
+     *
+     * @param p   The prime.
+     * @param bit The index of the bit of its next multiple, counted from the start of the range.
+     */
+    private void file(int p, long bit) {
+        int blockBits = words.length << 6;
+        int b = (int) ((bit / blockBits) % bucketSizes.length);
+        int size = bucketSizes[b];
+        if (bucketPrimes[b] == null) {
+            bucketPrimes[b] = new int[BUCKET_SIZE];
+            bucketOffsets[b] = new int[BUCKET_SIZE];
+        } else if (size == bucketPrimes[b].length) {
+            bucketPrimes[b] = Arrays.copyOf(bucketPrimes[b], size * 2);
+            bucketOffsets[b] = Arrays.copyOf(bucketOffsets[b], size * 2);
+        }
+        bucketPrimes[b][size] = p;
+        bucketOffsets[b][size] = (int) (bit % blockBits);
+        bucketSizes[b] = size + 1;
+    }
+
+    /**
+     * Crosses off the multiples of the large primes in the current block and refiles the primes.
+     * First the primes whose first multiple comes into the reach of the ring are filed.
+     */
+    private void crossLargePrimes() {
+        int blockBits = words.length << 6;
+        int ring = bucketSizes.length;
+        long reach = (block + ring - 1) * blockBits;
+        for (; filed < largePrimes.length && (largeStarts[filed] - first) >>> 1 < reach; ++filed) {
+            file(largePrimes[filed], (largeStarts[filed] - first) >>> 1);
+        }
+        int b = (int) (block % ring);
+        int[] ps = bucketPrimes[b];
+        int[] offsets = bucketOffsets[b];
+        int size = bucketSizes[b];
+        bucketSizes[b] = 0;
+        long base = block * blockBits;
+        for (int i = 0; i < size; ++i) {
+            int j = offsets[i];
+            if (j < bits) {
+                words[j >>> 6] &= ~(1L << j);
+            }
+            file(ps[i], base + j + ps[i]);
+        }
+    }
+
+    /**
+     * Sieves the next block of the range.
+     *
+     * @return false if the whole range has already been sieved.
+     */
+    boolean next() {
+        if (remaining == 0) {
+            return false;
+        }
+        low = nextLow;
+        bits = (int) Math.min((long) words.length << 6, remaining);
+        int wordCount = (bits + 63) >>> 6;
+        Arrays.fill(words, 0, wordCount, -1L);
+        if ((bits & 63) != 0) {
+            words[wordCount - 1] = -1L >>> (64 - (bits & 63));
+        }
+        if (low == 1) {
+            words[0] &= ~1L;
+        }
+        for (int k = 0; k < primes.length; ++k) {
+            int p = primes[k];
+            long j = (next[k] - low) >>> 1;
+            for (; j < bits; j += p) {
+                words[(int) (j >>> 6)] &= ~(1L << j);
+            }
+            next[k] = low + 2 * j;
+        }
+        ++block;
+        if (largePrimes.length > 0) {
+            crossLargePrimes();
+        }
+        remaining -= bits;
+        nextLow = low + 2L * bits;
+        return true;
+    }
+
+    /**
+     * Returns the block buffer. Only the first (bits() + 63) / 64 longs belong to the current block.
+     *
+     * @return The block buffer.
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * Returns the odd number that bit 0 of the current block stands for.
+     *
+     * @return The first odd number of the current block.
+     */
+    long low() {
+        return low;
+    }
+
+    /**
+     * Returns the number of valid bits in the current block.
+     *
+     * @return The number of odd numbers in the current block.
+     */
+    int bits() {
+        return bits;
+    }
+}
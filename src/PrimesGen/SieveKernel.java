@@ -0,0 +1,188 @@
+package PrimesGen;
+
+/**
+ * SieveKernel holds the data-parallel parts of the byte-per-number segmented Sieve of Eratosthenes (method 1 of the
+ * in-memory segmented engine): initialising a block from the pre-sieve patterns of the smallest primes and collecting
+ * the survivors of a block into an int array.
+ * <p>
+ * A block starts as a copy of BASE_PATTERN, in which the multiples of 2, 3, 5, 7, 11 and 13 are already crossed off
+ * (it repeats every 30030 numbers). Then the multiples of the primes in PATTERN_PRIMES are crossed off, see
+ * {@link #crossPatternPrimes(byte[], long, int)}. Only the bigger base primes are left to the caller.
+ * <p>
+ * Two implementations exist: VectorSieveKernel combines the block with periodic patterns of the products of
+ * PATTERN_GROUPS, a bitwise AND on wide lanes of the incubating Vector API, and scans it on wide lanes too.
+ * {@link ScalarSieveKernel} crosses off the multiples of PATTERN_PRIMES one write each and scans one byte at a time.
+ * {@link #get()} picks the vector kernel when the module jdk.incubator.vector is in the boot layer, i.e. the program was
+ * started with "--add-modules jdk.incubator.vector", and the class is on the class path, and the scalar kernel otherwise.
+ * <p>
+ * VectorSieveKernel lives in the optional source root src-vector, so the sources under src build without the
+ * incubating module. It is compiled separately, against the classes of src and with the module:
+ * <pre>
+ * javac -d out src/Main.java src/PrimesGen/*.java
+ * javac --add-modules jdk.incubator.vector -cp out -d out src-vector/PrimesGen/VectorSieveKernel.java
+ * java --add-modules jdk.incubator.vector -cp out Main ...
+ * </pre>
+ * <p>
+ * A kernel has no state and may be shared between threads.
+ */
+abstract class SieveKernel {
+    /**
+     * The primes crossed off by BASE_PATTERN.
+     */
+    static final int[] BASE_PRIMES = {2, 3, 5, 7, 11, 13};
+
+    /**
+     * The primes crossed off by the periodic patterns, after BASE_PATTERN.
+     */
+    static final int[] PATTERN_PRIMES = {17, 19, 23, 29, 31};
+
+    /**
+     * PATTERN_PRIMES grouped so that the product of each group is the period of one pattern of the vector kernel.
+     */
+    static final int[][] PATTERN_GROUPS = {{17, 19, 23}, {29, 31}};
+
+    /**
+     * The largest prime crossed off by the patterns, the bigger base primes must still be crossed off by the caller.
+     */
+    static final int LARGEST_PATTERN_PRIME = 31;
+
+    /**
+     * The period of BASE_PATTERN, 2 * 3 * 5 * 7 * 11 * 13.
+     */
+    private static final int BASE_PERIOD = 30030;
+
+    /**
+     * The widest vector in bytes that a kernel may read past the period of a pattern.
+     */
+    static final int MAX_LANES = 64;
+
+    /**
+     * Byte i is 1 if i is coprime to BASE_PERIOD.
+     */
+    private static final byte[] BASE_PATTERN = new byte[BASE_PERIOD];
+
+    /**
+     * For each group of PATTERN_GROUPS, byte i is 0 if i is a multiple of a prime of the group, and 1 otherwise.
+     * A pattern is MAX_LANES bytes longer than its period, so a full vector can be read at every offset below it.
+     */
+    static final byte[][] GROUP_PATTERNS = new byte[PATTERN_GROUPS.length][];
+
+    /**
+     * The period of each pattern of GROUP_PATTERNS, the product of its group.
+     */
+    static final int[] GROUP_PERIODS = new int[PATTERN_GROUPS.length];
+
+    static {
+        for (int i = 0; i < BASE_PERIOD; ++i) {
+            BASE_PATTERN[i] = 1;
+            for (int p : BASE_PRIMES) {
+                if (i % p == 0) {
+                    BASE_PATTERN[i] = 0;
+                    break;
+                }
+            }
+        }
+        for (int k = 0; k < PATTERN_GROUPS.length; ++k) {
+            int period = 1;
+            for (int p : PATTERN_GROUPS[k]) {
+                period *= p;
+            }
+            GROUP_PERIODS[k] = period;
+            GROUP_PATTERNS[k] = new byte[period + MAX_LANES];
+            for (int i = 0; i < GROUP_PATTERNS[k].length; ++i) {
+                GROUP_PATTERNS[k][i] = 1;
+                for (int p : PATTERN_GROUPS[k]) {
+                    if (i % p == 0) {
+                        GROUP_PATTERNS[k][i] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the kernel for this JVM, see the class comment.
+     *
+     * @return The vector kernel if the Vector API is available, the scalar kernel otherwise.
+     */
+    static SieveKernel get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Holds the kernel, selected on first use.
+     */
+    private static final class Holder {
+        static final SieveKernel INSTANCE = select();
+
+        /**
+         * Selects the kernel.
+         *
+         * @return The vector kernel if the Vector API is available, the scalar kernel otherwise.
+         */
+        private static SieveKernel select() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    return (SieveKernel) Class.forName("PrimesGen.VectorSieveKernel").getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    return new ScalarSieveKernel();
+                }
+            }
+            return new ScalarSieveKernel();
+        }
+    }
+
+    /**
+     * Initialises a block: byte i is set to 1 if low + i has no prime factor up to LARGEST_PATTERN_PRIME, and to 0
+     * otherwise. The primes up to LARGEST_PATTERN_PRIME themselves are set to 1, and 0 and 1 to 0.
+     *
+     * @param block  The block.
+     * @param low    The number that byte 0 stands for, not negative.
+     * @param length The number of bytes of the block to initialise.
+     */
+    final void fill(byte[] block, long low, int length) {
+        int offset = (int) (low % BASE_PERIOD);
+        for (int done = 0; done < length; ) {
+            int n = Math.min(length - done, BASE_PERIOD - offset);
+            System.arraycopy(BASE_PATTERN, offset, block, done, n);
+            done += n;
+            offset = 0;
+        }
+        crossPatternPrimes(block, low, length);
+        if (low <= LARGEST_PATTERN_PRIME) {
+            for (int p : BASE_PRIMES) {
+                if (p >= low && p - low < length) {
+                    block[(int) (p - low)] = 1;
+                }
+            }
+            for (int p : PATTERN_PRIMES) {
+                if (p >= low && p - low < length) {
+                    block[(int) (p - low)] = 1;
+                }
+            }
+            if (low <= 1 && 1 - low < length) {
+                block[(int) (1 - low)] = 0;
+            }
+        }
+    }
+
+    /**
+     * Crosses off the multiples of the primes of PATTERN_PRIMES in a block, setting their bytes to 0.
+     *
+     * @param block  The block.
+     * @param low    The number that byte 0 stands for, not negative.
+     * @param length The number of bytes of the block to sieve.
+     */
+    abstract void crossPatternPrimes(byte[] block, long low, int length);
+
+    /**
+     * Collects the survivors of a block: writes base + i to out for every i below length where block[i] is not 0.
+     *
+     * @param block  The block.
+     * @param length The number of bytes of the block to scan.
+     * @param base   The number that byte 0 stands for.
+     * @param out    The output buffer, at least as long as the number of survivors.
+     * @return The number of survivors written to out.
+     */
+    abstract int collect(byte[] block, int length, int base, int[] out);
+}
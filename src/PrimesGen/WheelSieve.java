@@ -0,0 +1,288 @@
+package PrimesGen;
+
+/**
+ * WheelSieve sieves a range [lL, uL] block by block with a mod-30 wheel, used by the wheel sieve engines (method 6).
+ * <p>
+ * Multiples of 2, 3 and 5 are never stored: byte i of the sieve covers the 30 numbers [30i, 30i + 29], and its 8 bits
+ * stand for the 8 spokes of the wheel, 30i + RESIDUES[k], the only ones that are coprime to 30.
+ * Each block is initialised by copying a precomputed pattern in which the multiples of 7, 11 and 13 are already
+ * crossed off (the pattern repeats every 7 * 11 * 13 = 1001 bytes, so together with the wheel it removes every
+ * multiple of a prime up to 13). The remaining base primes cross off only the multiples p * q with q on a wheel spoke,
+ * stepping through the 8 spokes of each turn of the wheel.
+ * <p>
+ * Compared with a boolean array this needs 30 times less memory, and most of the crossing-off writes for small
+ * primes are replaced by one copy of the pattern per block.
+ * <p>
+ * Usage:
+ * <pre>
+ * WheelSieve sieve = new WheelSieve(lL, uL, basePrimes);
+ * while (sieve.next()) {
+ *     // bit k of sieve.bytes()[i] stands for sieve.low() + 30i + RESIDUES[k], for i below sieve.length()
+ * }
+ * </pre>
+ * The primes 2, 3 and 5 are not part of the wheel and must be added by the caller, see WHEEL_PRIMES.
+ * An instance is not thread safe, every worker thread uses its own.
+ */
+final class WheelSieve {
+    /**
+     * The residues modulo 30 that are coprime to 30, the spokes of the wheel.
+     */
+    static final int[] RESIDUES = {1, 7, 11, 13, 17, 19, 23, 29};
+
+    /**
+     * The primes dividing the modulus of the wheel, they are not represented in the sieve.
+     */
+    static final int[] WHEEL_PRIMES = {2, 3, 5};
+
+    /**
+     * The number of bytes in a block (32 KiB, 983040 numbers).
+     */
+    static final int SEGMENT_BYTES = 1 << 15;
+
+    /**
+     * The length of the pre-sieve pattern in bytes, 7 * 11 * 13.
+     */
+    private static final int PATTERN_BYTES = 7 * 11 * 13;
+
+    /**
+     * The pre-sieve pattern, byte j has the bits of the spokes of [30j, 30j + 29] that are not divisible by 7, 11 or 13.
+     */
+    private static final byte[] PATTERN = new byte[PATTERN_BYTES];
+
+    /**
+     * The bit of each residue modulo 30, 0 for residues that are not spokes.
+     */
+    private static final int[] BIT = new int[30];
+
+    static {
+        for (int k = 0; k < 8; ++k) {
+            BIT[RESIDUES[k]] = 1 << k;
+        }
+        for (int j = 0; j < PATTERN_BYTES; ++j) {
+            int bits = 0;
+            for (int k = 0; k < 8; ++k) {
+                int x = 30 * j + RESIDUES[k];
+                if (x % 7 != 0 && x % 11 != 0 && x % 13 != 0) {
+                    bits |= 1 << k;
+                }
+            }
+            PATTERN[j] = (byte) bits;
+        }
+    }
+
+    /**
+     * The base primes from 17 up to the square root of uL.
+     */
+    private final int[] primes;
+
+    /**
+     * For each base prime p and spoke k, the byte offset of p * RESIDUES[k] within a turn of the wheel.
+     */
+    private final int[] offsets;
+
+    /**
+     * For each base prime p and spoke k, the bit of p * RESIDUES[k].
+     */
+    private final byte[] masks;
+
+    /**
+     * The wheel turn c of the next multiple p * (30c + RESIDUES[k]) of each base prime.
+     */
+    private final long[] turn;
+
+    /**
+     * The spoke k of the next multiple of each base prime.
+     */
+    private final byte[] spoke;
+
+    /**
+     * The reusable block buffer.
+     */
+    private final byte[] bytes;
+
+    /**
+     * The lower limit of the range.
+     */
+    private final long lL;
+
+    /**
+     * The upper limit of the range.
+     */
+    private final long uL;
+
+    /**
+     * The byte index of the last byte of the range.
+     */
+    private final long lastByte;
+
+    /**
+     * The byte index of the first byte of the next block.
+     */
+    private long nextByte;
+
+    /**
+     * The byte index of the first byte of the current block.
+     */
+    private long firstByte;
+
+    /**
+     * The number of bytes in the current block.
+     */
+    private int length;
+
+    /**
+     * Constructor for the WheelSieve class.
+     *
+     * @param lL         The lower limit of the range.
+     * @param uL         The upper limit of the range.
+     * @param basePrimes The primes up to the square root of uL, in ascending order. Primes up to 13 are skipped.
+     */
+    WheelSieve(long lL, long uL, int[] basePrimes) {
+        this.lL = Math.max(lL, 0);
+        this.uL = uL;
+        this.nextByte = this.lL / 30;
+        this.lastByte = uL / 30;
+        this.bytes = new byte[(int) Math.min(SEGMENT_BYTES, Math.max(0, lastByte - nextByte + 1))];
+
+        int count = 0;
+        for (int p : basePrimes) {
+            if (p > 13 && (long) p * p <= uL) {
+                ++count;
+            }
+        }
+        this.primes = new int[count];
+        this.offsets = new int[8 * count];
+        this.masks = new byte[8 * count];
+        this.turn = new long[count];
+        this.spoke = new byte[count];
+        int i = 0;
+        for (int p : basePrimes) {
+            if (p <= 13 || (long) p * p > uL) {
+                continue;
+            }
+            primes[i] = p;
+            for (int k = 0; k < 8; ++k) {
+                offsets[8 * i + k] = (int) ((long) p * RESIDUES[k] / 30);
+                masks[8 * i + k] = (byte) BIT[(int) ((long) p * RESIDUES[k] % 30)];
+            }
+            long q = Math.max(p, (this.lL + p - 1) / p);
+            long c = q / 30;
+            int k = 0;
+            while (k < 8 && 30 * c + RESIDUES[k] < q) {
+                ++k;
+            }
+            if (k == 8) {
+                ++c;
+                k = 0;
+            }
+            turn[i] = c;
+            spoke[i] = (byte) k;
+            ++i;
+        }
+    }
+
+    /**
+     * Sieves the next block of the range.
+     *
+     * @return false if the whole range has already been sieved.
+     */
+    boolean next() {
+        if (nextByte > lastByte || uL < lL) {
+            return false;
+        }
+        firstByte = nextByte;
+        length = (int) Math.min(bytes.length, lastByte - firstByte + 1);
+        long end = firstByte + length;
+
+        for (int done = 0; done < length; ) {
+            int from = (int) ((firstByte + done) % PATTERN_BYTES);
+            int run = Math.min(length - done, PATTERN_BYTES - from);
+            System.arraycopy(PATTERN, from, bytes, done, run);
+            done += run;
+        }
+        if (firstByte == 0) {
+            bytes[0] = (byte) ((bytes[0] & ~1) | BIT[7] | BIT[11] | BIT[13]);
+        }
+
+        for (int i = 0; i < primes.length; ++i) {
+            int p = primes[i];
+            long c = turn[i];
+            int k = spoke[i];
+            long base = c * p - firstByte;
+            while (base + offsets[8 * i + k] < length) {
+                bytes[(int) (base + offsets[8 * i + k])] &= (byte) ~masks[8 * i + k];
+                if (++k == 8) {
+                    k = 0;
+                    ++c;
+                    base += p;
+                }
+            }
+            turn[i] = c;
+            spoke[i] = (byte) k;
+        }
+
+        if (firstByte == lL / 30) {
+            bytes[0] &= (byte) ~lowMask((int) (lL % 30));
+        }
+        if (end - 1 == lastByte) {
+            bytes[length - 1] &= (byte) ~highMask((int) (uL % 30));
+        }
+        nextByte = end;
+        return true;
+    }
+
+    /**
+     * Returns the bits of the spokes below the given residue.
+     *
+     * @param r A residue modulo 30.
+     * @return The mask of the spokes below r.
+     */
+    private static int lowMask(int r) {
+        int mask = 0;
+        for (int k = 0; k < 8 && RESIDUES[k] < r; ++k) {
+            mask |= 1 << k;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the bits of the spokes above the given residue.
+     *
+     * @param r A residue modulo 30.
+     * @return The mask of the spokes above r.
+     */
+    private static int highMask(int r) {
+        int mask = 0;
+        for (int k = 7; k >= 0 && RESIDUES[k] > r; --k) {
+            mask |= 1 << k;
+        }
+        return mask;
+    }
+
+    /**
+     * Returns the block buffer. Only the first length() bytes belong to the current block.
+     *
+     * @return The block buffer.
+     */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the number that byte 0 of the current block starts at, a multiple of 30.
+     *
+     * @return The first number of the current block.
+     */
+    long low() {
+        return 30 * firstByte;
+    }
+
+    /**
+     * Returns the number of bytes in the current block.
+     *
+     * @return The length of the current block.
+     */
+    int length() {
+        return length;
+    }
+}